@@ -0,0 +1,322 @@
+import tasktracker.bench.Driver;
+
+import javax.swing.JLabel;
+import javax.swing.JList;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+// Driver for the benchmark module; see tasktracker.bench.Driver for why this lives in
+// the default package.
+public class BenchDriver implements Driver {
+    private static final String[] WORDS = {
+            "review", "update", "report", "invoice", "call", "email", "draft", "release", "fix", "plan",
+            "meeting", "budget", "design", "deploy", "test", "client", "server", "backup", "notes", "order"
+    };
+
+    private TaskManager manager;
+    private TaskServer server;
+    private TaskCellRenderer renderer;
+    private JList<Task> list;
+    private TimingWheel<Integer> wheel;
+    private List<TimingWheel.Timer<Integer>> timers;
+
+    @Override
+    public void generate(Path file, int size, long seed) throws IOException {
+        String name = file.getFileName().toString();
+        List<Task> tasks = syntheticTasks(size, seed);
+        if (name.contains(".csv") || name.contains(".ndjson")) {
+            TaskTransfer.write(tasks, file, name.contains(".csv") ? TaskTransfer.Format.CSV
+                    : TaskTransfer.Format.NDJSON, p -> { });
+        } else if (name.contains(".dat")) {
+            new BinaryTaskFormat().write(file, tasks, 0);
+        } else {
+            new TextTaskFormat().write(file, tasks, 0);
+        }
+    }
+
+    @Override
+    public void open(boolean async, boolean binary, boolean lazy, int shards, boolean columnar) {
+        System.setProperty("tasktracker.lazy", String.valueOf(lazy));
+        System.setProperty("tasktracker.columnar", String.valueOf(columnar));
+        manager = new TaskManager(async, binary, shards);
+    }
+
+    @Override
+    public int openInBackground(boolean binary, boolean lazy, boolean untilLoaded) {
+        System.setProperty("tasktracker.lazy", String.valueOf(lazy));
+        manager = new TaskManager(false, binary, 1, true);
+        CountDownLatch firstChunk = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        manager.addTaskListener(events -> firstChunk.countDown(), Runnable::run);
+        manager.whenLoaded(() -> {
+            firstChunk.countDown();
+            loaded.countDown();
+        }, Runnable::run);
+        manager.loadInBackground(percent -> { });
+        try {
+            (untilLoaded ? loaded : firstChunk).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return (int) (manager.getCompletedCount() + manager.getPendingCount());
+    }
+
+    @Override
+    public void close() {
+        stopServer();
+        if (manager != null) {
+            manager.close();
+            manager = null;
+        }
+    }
+
+    @Override
+    public int startServer() throws IOException {
+        server = new TaskServer(manager, InetAddress.getLoopbackAddress(), 0);
+        server.start();
+        return server.getPort();
+    }
+
+    @Override
+    public void stopServer() {
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+    }
+
+    @Override
+    public int size() {
+        return manager.getTasks().size();
+    }
+
+    @Override
+    public int addTask(String description, String priority) {
+        return manager.addTask(description, Priority.parse(priority)).getId();
+    }
+
+    @Override
+    public void markDone(int index) {
+        manager.markDone(index);
+    }
+
+    @Override
+    public void deleteTask(int index) {
+        manager.deleteTask(index);
+    }
+
+    @Override
+    public boolean updatePriorityById(int id, String priority) {
+        return manager.updatePriorityById(id, Priority.parse(priority));
+    }
+
+    @Override
+    public void deleteCompletedTasks() {
+        manager.deleteCompletedTasks();
+    }
+
+    @Override
+    public boolean undo() {
+        return manager.undo();
+    }
+
+    @Override
+    public Object getTaskById(int id) {
+        return manager.getTaskById(id);
+    }
+
+    @Override
+    public List<?> getFilteredTasks(String filter) {
+        return manager.getFilteredTasks(filter);
+    }
+
+    @Override
+    public List<?> getFilteredTasksByStream(String filter) {
+        Boolean completed = TaskManager.filterStatus(filter);
+        Priority priority = TaskManager.filterPriority(filter);
+        return manager.getTasks().stream()
+                .filter(t -> TaskManager.matches(completed, priority, t))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return manager.getCompletedCount();
+    }
+
+    @Override
+    public List<?> getTopTasks(String filter, String order, boolean descending, int k) {
+        return manager.getTopTasks(filter, TaskOrder.valueOf(order), descending, k);
+    }
+
+    @Override
+    public List<?> getTopTasksBySorting(String filter, String order, boolean descending, int k) {
+        List<Task> matching = new ArrayList<>();
+        for (Task t : manager.getTasks()) {
+            if (TaskManager.matchesFilter(filter, t)) {
+                matching.add(t);
+            }
+        }
+        Comparator<Task> comparator = TaskOrder.valueOf(order).comparator(descending);
+        matching.sort(comparator);
+        return new ArrayList<>(matching.subList(0, Math.min(k, matching.size())));
+    }
+
+    @Override
+    public int[] search(String query, int limit) {
+        return manager.search(query, limit);
+    }
+
+    @Override
+    public int renderRows(int offset, int count) {
+        if (renderer == null) {
+            renderer = new TaskCellRenderer();
+            list = new JList<>();
+        }
+        List<Task> tasks = manager.getTasks();
+        int length = 0;
+        for (int i = offset; i < offset + count && i < tasks.size(); i++) {
+            JLabel row = (JLabel) renderer.getListCellRendererComponent(list, tasks.get(i), i, false, false);
+            length += row.getText().length();
+        }
+        return length;
+    }
+
+    @Override
+    public int formatDates(int offset, int count) {
+        List<Task> tasks = manager.getTasks();
+        int length = 0;
+        for (int i = offset; i < offset + count && i < tasks.size(); i++) {
+            length += tasks.get(i).getFormattedDate().length();
+        }
+        return length;
+    }
+
+    @Override
+    public long countMatching(String filter) {
+        Boolean completed = TaskManager.filterStatus(filter);
+        Priority priority = TaskManager.filterPriority(filter);
+        long n = 0;
+        for (Task t : manager.getTasks()) {
+            if (TaskManager.matches(completed, priority, t)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public void writeSnapshot(Path file, boolean binary) throws IOException {
+        List<Task> snapshot = new ArrayList<>();
+        for (Task t : manager.getTasks()) {
+            snapshot.add(t.copy());
+        }
+        TaskFormat format = binary ? new BinaryTaskFormat() : new TextTaskFormat();
+        format.write(file, snapshot, 0);
+    }
+
+    @Override
+    public long importTasks(Path file) throws IOException {
+        return TaskTransfer.importTasks(manager, file, p -> { }).imported;
+    }
+
+    @Override
+    public long scanTasks() {
+        long n = 0;
+        for (Task t : manager.getTasks()) {
+            if (!t.isCompleted() && t.getPriority() == Priority.HIGH) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public void scheduleTasks(int days, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        LocalDateTime now = LocalDateTime.now();
+        manager.batch(m -> {
+            for (Task t : m.getTasksSnapshot()) {
+                if (!t.isCompleted()) {
+                    LocalDateTime due = now.plusMinutes(1 + random.nextInt(days * 24 * 60));
+                    m.setSchedule(t.getId(), new TaskSchedule(due, due.minusMinutes(15), Recurrence.NONE));
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean reschedule(int id, int minutesAhead) {
+        LocalDateTime due = LocalDateTime.now().plusMinutes(minutesAhead);
+        return manager.setSchedule(id, new TaskSchedule(due, due.minusMinutes(15), Recurrence.NONE));
+    }
+
+    @Override
+    public int getOverdueCount() {
+        return manager.getOverdueCount();
+    }
+
+    @Override
+    public void fillWheel(int count, int days, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        wheel = new TimingWheel<>(ReminderScheduler.toTick(LocalDateTime.now()));
+        timers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            timers.add(wheel.schedule(wheel.getTick() + 1 + random.nextInt(days * 24 * 60 * 60), i));
+        }
+    }
+
+    @Override
+    public void rescheduleTimer(int index, long delay) {
+        TimingWheel.Timer<Integer> timer = timers.get(index);
+        wheel.cancel(timer);
+        timers.set(index, wheel.schedule(wheel.getTick() + delay, timer.getPayload()));
+    }
+
+    @Override
+    public int advanceWheel() {
+        int[] fired = new int[1];
+        wheel.advanceTo(wheel.getTick() + 1, timer -> fired[0]++);
+        return fired[0];
+    }
+
+    // A year of history: ids in creation order, about a third completed, priorities
+    // weighted towards MEDIUM, and three to eight words per description.
+    private static List<Task> syntheticTasks(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = now.minusDays(365);
+        long spanMinutes = 365L * 24 * 60;
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder description = new StringBuilder();
+            int words = 3 + random.nextInt(6);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    description.append(' ');
+                }
+                description.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            description.append(' ').append(i);
+            int p = random.nextInt(10);
+            Priority priority = p < 2 ? Priority.HIGH : p < 7 ? Priority.MEDIUM : Priority.LOW;
+            LocalDateTime created = start.plusMinutes(spanMinutes * i / Math.max(1, size));
+            boolean completed = random.nextInt(3) == 0;
+            LocalDateTime completedDate = null;
+            if (completed) {
+                completedDate = created.plusMinutes(random.nextInt(14 * 24 * 60));
+                completedDate = completedDate.isAfter(now) ? now : completedDate;
+            }
+            tasks.add(new Task(i + 1, description.toString(), completed, priority, created, completedDate));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,84 @@
+package tasktracker.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compares two JMH CSV result files (-rf csv) benchmark by benchmark and flags results
+// that got worse by more than the threshold and by more than both error margins.
+//   java -cp benchmarks.jar tasktracker.bench.CompareResults baseline.csv results.csv 10
+public class CompareResults {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CompareResults <baseline.csv> <results.csv> [threshold %]");
+            System.exit(1);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, String[]> baseline = read(args[0]);
+        Map<String, String[]> current = read(args[1]);
+        int regressions = 0;
+        for (Map.Entry<String, String[]> e : current.entrySet()) {
+            String[] now = e.getValue();
+            String[] before = baseline.get(e.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s  (new)%n", e.getKey(), now[4] + " " + now[6]);
+                continue;
+            }
+            double was = Double.parseDouble(before[4]);
+            double is = Double.parseDouble(now[4]);
+            double margin = parseError(before[5]) + parseError(now[5]);
+            // Throughput is better when higher; every time-based mode when lower.
+            boolean higherIsBetter = now[1].equals("thrpt");
+            double worse = higherIsBetter ? was - is : is - was;
+            boolean regressed = worse > was * threshold && worse > margin;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f -> %14.3f %-8s %+7.1f%%%s%n", e.getKey(), was, is, now[6],
+                    (is - was) * 100 / was, regressed ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions + " regressions");
+        System.exit(regressions > 0 ? 2 : 0);
+    }
+
+    // Keyed by benchmark, mode, threads and parameter values.
+    private static Map<String, String[]> read(String file) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        String[] header = split(lines.get(0));
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] row = split(line);
+            StringBuilder key = new StringBuilder(row[0].replace("tasktracker.bench.", ""))
+                    .append(' ').append(row[1]).append(" t=").append(row[2]);
+            for (int i = 7; i < row.length; i++) {
+                if (row[i].isEmpty()) {
+                    continue;
+                }
+                key.append(' ').append(header[i].replace("Param: ", "")).append('=').append(row[i]);
+            }
+            rows.put(key.toString(), row);
+        }
+        return rows;
+    }
+
+    private static double parseError(String value) {
+        return value.isEmpty() || value.equals("NaN") ? 0 : Double.parseDouble(value);
+    }
+
+    // JMH quotes every field and never embeds quotes or commas in them.
+    private static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        for (String f : line.split(",", -1)) {
+            fields.add(f.startsWith("\"") && f.endsWith("\"") && f.length() >= 2 ? f.substring(1, f.length() - 1) : f);
+        }
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,101 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Threads updating and reading random tasks: how throughput scales from 1 to 8 threads,
+// and how sharding and write-behind change contention. JMH cannot take the thread count
+// as a parameter, so each count has its own method. Throughput can only scale up to the
+// machine's core count; past it, the extra threads measure contention alone.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ConcurrencyBenchmark {
+    private static final String[] PRIORITIES = { "HIGH", "MEDIUM", "LOW" };
+    private static final int SIZE = 100000;
+
+    @Param({ "1", "4", "16" })
+    int shards;
+
+    @Param({ "false", "true" })
+    boolean async;
+
+    private final Driver driver = Driver.load();
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+
+        int id() {
+            return 1 + random.nextInt(SIZE);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void open() {
+        Workspace.install(Workspace.generated(driver, SIZE, ".txt"), false);
+        driver.open(async, false, false, shards);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        driver.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean updatePriority1(Picker picker) {
+        return updatePriority(picker);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean updatePriority2(Picker picker) {
+        return updatePriority(picker);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean updatePriority4(Picker picker) {
+        return updatePriority(picker);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean updatePriority8(Picker picker) {
+        return updatePriority(picker);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object getTaskById1(Picker picker) {
+        return driver.getTaskById(picker.id());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Object getTaskById2(Picker picker) {
+        return driver.getTaskById(picker.id());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object getTaskById4(Picker picker) {
+        return driver.getTaskById(picker.id());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object getTaskById8(Picker picker) {
+        return driver.getTaskById(picker.id());
+    }
+
+    private boolean updatePriority(Picker picker) {
+        return driver.updatePriorityById(picker.id(), PRIORITIES[picker.random.nextInt(PRIORITIES.length)]);
+    }
+}
@@ -0,0 +1,113 @@
+package tasktracker.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// What the benchmarks need from the application. Its classes live in the default
+// package, which named packages cannot import and JMH will not generate benchmarks for,
+// so BenchDriver implements this from the default package and is loaded by name. Calls
+// through it are monomorphic and inline like direct calls.
+//
+// TaskManager keeps its files in the working directory; see Workspace.
+public interface Driver {
+    static Driver load() {
+        try {
+            return (Driver) Class.forName("BenchDriver").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchDriver is missing from the classpath", e);
+        }
+    }
+
+    // Writes size synthetic tasks to file. The format follows the extension: .txt and .dat
+    // are snapshots, .csv and .ndjson are import files.
+    void generate(Path file, int size, long seed) throws IOException;
+
+    default void open(boolean async, boolean binary, boolean lazy, int shards) {
+        open(async, binary, lazy, shards, false);
+    }
+
+    // With columnar, tasks keep their state in TaskStore columns (tasktracker.columnar).
+    void open(boolean async, boolean binary, boolean lazy, int shards, boolean columnar);
+
+    // Opens a manager that loads on a background thread, as the GUI does, and returns the
+    // number of tasks in once listeners have the first chunk, or the whole load if
+    // untilLoaded. close() waits for the rest.
+    int openInBackground(boolean binary, boolean lazy, boolean untilLoaded);
+
+    void close();
+
+    // Serves the open manager through a TaskServer on a free loopback port and returns
+    // the port.
+    int startServer() throws IOException;
+
+    void stopServer();
+
+    int size();
+
+    int addTask(String description, String priority);
+
+    void markDone(int index);
+
+    void deleteTask(int index);
+
+    boolean updatePriorityById(int id, String priority);
+
+    void deleteCompletedTasks();
+
+    boolean undo();
+
+    Object getTaskById(int id);
+
+    List<?> getFilteredTasks(String filter);
+
+    // The same tasks as getFilteredTasks, collected by streaming over every task as
+    // getFilteredTasks did before it was indexed.
+    List<?> getFilteredTasksByStream(String filter);
+
+    long getCompletedCount();
+
+    List<?> getTopTasks(String filter, String order, boolean descending, int k);
+
+    // The same page as getTopTasks, by filtering and sorting a snapshot.
+    List<?> getTopTasksBySorting(String filter, String order, boolean descending, int k);
+
+    int[] search(String query, int limit);
+
+    // What a repaint does per visible row: the list's cell renderer is asked for rows
+    // offset to offset + count of the task list. Returns the total text length.
+    int renderRows(int offset, int count);
+
+    // getFormattedDate for the same rows, as a tooltip or detail view would show them.
+    int formatDates(int offset, int count);
+
+    // Tasks matching a filter, checked one by one as the list model does for every
+    // change event.
+    long countMatching(String filter);
+
+    // The copy-then-write part of a journal compaction, into file.
+    void writeSnapshot(Path file, boolean binary) throws IOException;
+
+    long importTasks(Path file) throws IOException;
+
+    // Pending HIGH tasks, counted by visiting every task of the manager's list.
+    long scanTasks();
+
+    // Gives every pending task a due date within the next days, with a reminder before it.
+    void scheduleTasks(int days, long seed);
+
+    // Moves a task's due date and reminder through TaskManager.setSchedule.
+    boolean reschedule(int id, int minutesAhead);
+
+    int getOverdueCount();
+
+    // A bare TimingWheel holding count timers spread over the next days, one second per
+    // tick, for measuring it without TaskManager around it.
+    void fillWheel(int count, int days, long seed);
+
+    // Cancels timer index and schedules it again delay ticks ahead.
+    void rescheduleTimer(int index, long delay);
+
+    // Advances the wheel one tick and returns how many timers fired.
+    int advanceWheel();
+}
@@ -0,0 +1,48 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// getFilteredTasks for each kind of filter the GUI offers, against the stream over every
+// task that it replaced.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+    @Param({ "10000", "100000", "1000000" })
+    int size;
+
+    @Param({ "ALL", "PENDING", "COMPLETED", "HIGH", "PENDING+HIGH" })
+    String filter;
+
+    private final Driver driver = Driver.load();
+
+    @Setup(Level.Trial)
+    public void open() {
+        Workspace.install(Workspace.generated(driver, size, ".txt"), false);
+        driver.open(false, false, false, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        driver.close();
+    }
+
+    // Sized so views that copy lazily are charged for the copy too.
+    @Benchmark
+    public int getFilteredTasks() {
+        List<?> tasks = driver.getFilteredTasks(filter);
+        return tasks.isEmpty() ? 0 : tasks.size() + tasks.get(tasks.size() - 1).hashCode();
+    }
+
+    @Benchmark
+    public int streamFilter() {
+        List<?> tasks = driver.getFilteredTasksByStream(filter);
+        return tasks.isEmpty() ? 0 : tasks.size() + tasks.get(tasks.size() - 1).hashCode();
+    }
+}
@@ -0,0 +1,34 @@
+package tasktracker.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+// Heap retained per task by a loaded TaskManager (tasks plus every index), with tasks as
+// plain objects or as views over TaskStore columns (--columnar), measured as the change
+// in used heap after forced collections. Run it alone in a fresh JVM from a scratch
+// directory:
+//   java -cp benchmarks.jar tasktracker.bench.Footprint 1000000 [--columnar]
+public class Footprint {
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        boolean columnar = args.length > 1 && args[1].equals("--columnar");
+        Driver driver = Driver.load();
+        Workspace.install(Workspace.generated(driver, size, ".txt"), false);
+
+        long base = usedHeap();
+        driver.open(false, false, false, 1, columnar);
+        long loaded = usedHeap();
+
+        System.out.printf("TaskManager%s: %,d bytes (%.0f per task)%n", columnar ? " (columnar)" : "",
+                loaded - base, (loaded - base) / (double) size);
+        driver.close();
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,22 @@
+package tasktracker.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Writes a synthetic task file: tasks.txt or tasks.dat snapshots to start the application
+// on, or .csv/.ndjson files to import.
+//   java -cp benchmarks.jar tasktracker.bench.GenerateTasks 1000000 tasks.dat
+public class GenerateTasks {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: GenerateTasks <count> <file.txt|file.dat|file.csv|file.ndjson>");
+            System.exit(1);
+        }
+        int count = Integer.parseInt(args[0]);
+        Path file = Paths.get(args[1]);
+        long start = System.nanoTime();
+        Driver.load().generate(file, count, 42);
+        System.out.printf("Wrote %d tasks to %s in %.1f s%n", count, file, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,46 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Importing a CSV or NDJSON file into an empty manager, end to end.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+    @Param({ "100000", "1000000" })
+    int size;
+
+    @Param({ "csv", "ndjson" })
+    String format;
+
+    private final Driver driver = Driver.load();
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        file = Workspace.generated(driver, size, "." + format);
+    }
+
+    @Setup(Level.Iteration)
+    public void open() {
+        Workspace.clean();
+        driver.open(false, false, false, 1);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+        driver.close();
+    }
+
+    @Benchmark
+    public long importTasks() throws IOException {
+        return driver.importTasks(file);
+    }
+}
@@ -0,0 +1,210 @@
+package tasktracker.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Drives a TaskServer with many clients and reports throughput and latency. Each client
+// keeps up to --pipeline requests in flight: it writes them in one go and reads their
+// replies before sending more. The mix is half GET, then PRIORITY, DONE, SEARCH and ADD;
+// ids are drawn from the preloaded tasks. --subscribe clients also SYNC first and so
+// receive every change as a push, which is the cost of a GUI watching the server.
+// Without --connect a server is started in this JVM on a generated dataset, so run it
+// from a scratch directory like the benchmarks:
+//   java -cp benchmarks.jar tasktracker.bench.LoadTest --clients 16 --pipeline 32
+public class LoadTest {
+    private static final String[] WORDS = {"review", "report", "client", "deploy", "budget", "backup"};
+    private static final String[] PRIORITIES = {"HIGH", "MEDIUM", "LOW"};
+
+    private static class Client extends Thread {
+        final String host;
+        final int port;
+        final int pipeline;
+        final int tasks;
+        final boolean subscribe;
+        final long deadline;
+        final SplittableRandom random;
+        long[] latencies = new long[1 << 16];
+        int count;
+        long errors;
+        long pushes;
+        IOException failure;
+
+        Client(String host, int port, int pipeline, int tasks, boolean subscribe, long deadline, long seed) {
+            this.host = host;
+            this.port = port;
+            this.pipeline = pipeline;
+            this.tasks = tasks;
+            this.subscribe = subscribe;
+            this.deadline = deadline;
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = new Socket(host, port)) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 64 * 1024);
+                if (subscribe) {
+                    out.write("0 SYNC\n".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    String line;
+                    while ((line = in.readLine()) != null && !line.startsWith("0 OK")) {
+                    }
+                }
+                int n = 1;
+                StringBuilder burst = new StringBuilder();
+                while (System.nanoTime() < deadline) {
+                    burst.setLength(0);
+                    for (int i = 0; i < pipeline; i++) {
+                        burst.append(n++).append(' ').append(nextRequest()).append('\n');
+                    }
+                    long sent = System.nanoTime();
+                    out.write(burst.toString().getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    for (int replies = 0; replies < pipeline; ) {
+                        String line = in.readLine();
+                        if (line == null) {
+                            throw new IOException("server closed the connection");
+                        }
+                        if (line.startsWith("* ")) {
+                            pushes++;
+                            continue;
+                        }
+                        if (line.startsWith("ERR", line.indexOf(' ') + 1)) {
+                            errors++;
+                        }
+                        record((System.nanoTime() - sent) / 1000);
+                        replies++;
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private String nextRequest() {
+            int kind = random.nextInt(100);
+            int id = 1 + random.nextInt(tasks);
+            if (kind < 50) {
+                return "GET " + id;
+            } else if (kind < 70) {
+                return "PRIORITY " + id + " " + PRIORITIES[random.nextInt(PRIORITIES.length)];
+            } else if (kind < 80) {
+                return "DONE " + id;
+            } else if (kind < 90) {
+                return "SEARCH 20 " + WORDS[random.nextInt(WORDS.length)];
+            }
+            return "ADD LOW load test " + WORDS[random.nextInt(WORDS.length)] + " " + id;
+        }
+
+        private void record(long micros) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = micros;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = 8;
+        int seconds = 10;
+        int pipeline = 16;
+        int tasks = 100000;
+        int subscribers = 0;
+        int shards = 4;
+        String connect = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--clients":
+                    clients = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(value);
+                    break;
+                case "--pipeline":
+                    pipeline = Integer.parseInt(value);
+                    break;
+                case "--tasks":
+                    tasks = Integer.parseInt(value);
+                    break;
+                case "--subscribe":
+                    subscribers = Integer.parseInt(value);
+                    break;
+                case "--shards":
+                    shards = Integer.parseInt(value);
+                    break;
+                case "--connect":
+                    connect = value;
+                    break;
+                default:
+                    System.out.println("Usage: LoadTest [--clients N] [--seconds N] [--pipeline N] [--tasks N]"
+                            + " [--subscribe N] [--shards N] [--connect host:port]");
+                    System.exit(1);
+            }
+        }
+
+        Driver driver = null;
+        String host = "localhost";
+        int port;
+        if (connect == null) {
+            driver = Driver.load();
+            Workspace.install(Workspace.generated(driver, tasks, ".txt"), false);
+            driver.open(true, false, false, shards);
+            port = driver.startServer();
+        } else {
+            host = connect.substring(0, connect.lastIndexOf(':'));
+            port = Integer.parseInt(connect.substring(connect.lastIndexOf(':') + 1));
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        List<Client> running = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Client c = new Client(host, port, pipeline, tasks, i < subscribers, deadline, 42 + i);
+            running.add(c);
+            c.start();
+        }
+        long[] all = new long[0];
+        long errors = 0;
+        long pushes = 0;
+        for (Client c : running) {
+            c.join();
+            if (c.failure != null) {
+                System.out.println("Client failed: " + c.failure.getMessage());
+            }
+            int from = all.length;
+            all = Arrays.copyOf(all, from + c.count);
+            System.arraycopy(c.latencies, 0, all, from, c.count);
+            errors += c.errors;
+            pushes += c.pushes;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        if (driver != null) {
+            driver.close();
+        }
+
+        Arrays.sort(all);
+        System.out.printf("%d clients, pipeline %d, %d subscribed, %.1f s%n", clients, pipeline, subscribers, elapsed);
+        System.out.printf("requests %,d (%,.0f ops/s), errors %d, pushes received %,d%n",
+                all.length, all.length / elapsed, errors, pushes);
+        if (all.length > 0) {
+            System.out.printf("latency micros: p50 %d  p99 %d  p99.9 %d  max %d%n", percentile(all, 0.5),
+                    percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1]);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
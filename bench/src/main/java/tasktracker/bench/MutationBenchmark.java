@@ -0,0 +1,67 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Single-task mutations against a manager of the given size, with the journal written
+// synchronously or by the write-behind thread. Each iteration starts from a freshly
+// loaded manager and times a batch of 1000 operations, so the score in ms is the average
+// cost of one operation in µs; deletes would otherwise drain the list.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = MutationBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = MutationBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Thread)
+public class MutationBenchmark {
+    static final int BATCH = 1000;
+    private static final String[] PRIORITIES = { "HIGH", "MEDIUM", "LOW" };
+
+    @Param({ "10000", "100000", "1000000" })
+    int size;
+
+    @Param({ "false", "true" })
+    boolean async;
+
+    private final Driver driver = Driver.load();
+    private final SplittableRandom random = new SplittableRandom(7);
+    private Path generated;
+    private int remaining;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        generated = Workspace.generated(driver, size, ".txt");
+    }
+
+    @Setup(Level.Iteration)
+    public void open() {
+        Workspace.install(generated, false);
+        driver.open(async, false, false, 1);
+        remaining = driver.size();
+    }
+
+    // Not timed: in async mode this is where the journal backlog is written out.
+    @TearDown(Level.Iteration)
+    public void close() {
+        driver.close();
+    }
+
+    @Benchmark
+    public int addTask() {
+        return driver.addTask("benchmark task " + remaining++, PRIORITIES[random.nextInt(PRIORITIES.length)]);
+    }
+
+    @Benchmark
+    public void markDone() {
+        driver.markDone(random.nextInt(remaining));
+    }
+
+    // By list index, so each delete also finds the task's position and closes the gap.
+    @Benchmark
+    public void deleteTask() {
+        driver.deleteTask(random.nextInt(remaining--));
+    }
+}
@@ -0,0 +1,59 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Read paths the GUI hits on every change: counters, a sorted top-20 page (against
+// filtering and sorting a snapshot, which is what it replaced) and search-as-you-type.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    int size;
+
+    private final Driver driver = Driver.load();
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Setup(Level.Trial)
+    public void open() {
+        Workspace.install(Workspace.generated(driver, size, ".txt"), false);
+        driver.open(false, false, false, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        driver.close();
+    }
+
+    @Benchmark
+    public long getCompletedCount() {
+        return driver.getCompletedCount();
+    }
+
+    @Benchmark
+    public List<?> getTopTasks() {
+        return driver.getTopTasks("PENDING", "PRIORITY", false, 20);
+    }
+
+    @Benchmark
+    public List<?> getTopTasksBySorting() {
+        return driver.getTopTasksBySorting("PENDING", "PRIORITY", false, 20);
+    }
+
+    @Benchmark
+    public Object getTaskById() {
+        return driver.getTaskById(1 + random.nextInt(size));
+    }
+
+    @Benchmark
+    public int[] search() {
+        return driver.search("budget rev", 1000);
+    }
+}
@@ -0,0 +1,56 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Reminder bookkeeping with many tasks scheduled over the next month. Moving a due date
+// cancels and re-inserts the task's timers, so it should cost the same at any number of
+// pending reminders; so should the once-a-second tick while nothing is due.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g" })
+@State(Scope.Benchmark)
+public class ReminderBenchmark {
+    private static final int DAYS = 30;
+
+    @Param({ "100000", "500000" })
+    int size;
+
+    private final Driver driver = Driver.load();
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void open() {
+        Workspace.install(Workspace.generated(driver, size, ".txt"), false);
+        driver.open(true, false, false, 1);
+        driver.scheduleTasks(DAYS, 42);
+        driver.fillWheel(size, DAYS, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        driver.close();
+    }
+
+    // End to end through TaskManager, journal append and listeners included.
+    @Benchmark
+    public boolean setSchedule() {
+        return driver.reschedule(1 + random.nextInt(size), 1 + random.nextInt(DAYS * 24 * 60));
+    }
+
+    @Benchmark
+    public void wheelReschedule() {
+        driver.rescheduleTimer(random.nextInt(size), 1 + random.nextInt(DAYS * 24 * 60 * 60));
+    }
+
+    // Every tick is a second later, so over a run this fires the timers due in the
+    // first few hours along with their cascades.
+    @Benchmark
+    public int wheelTick() {
+        return driver.advanceWheel();
+    }
+}
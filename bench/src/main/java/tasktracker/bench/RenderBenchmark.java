@@ -0,0 +1,60 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// The per-row work behind a repaint, and the per-task filter check behind every change
+// event. These run constantly while the GUI is open, so their garbage matters as much as
+// their time; run with -prof gc to see bytes allocated per operation.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g", "-Djava.awt.headless=true" })
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+    // About one screenful of rows.
+    private static final int PAGE = 40;
+
+    @Param({ "100000" })
+    int size;
+
+    private final Driver driver = Driver.load();
+    private int offset;
+
+    @Setup(Level.Trial)
+    public void open() {
+        Workspace.install(Workspace.generated(driver, size, ".txt"), false);
+        driver.open(false, false, false, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        driver.close();
+    }
+
+    // Repaints the same screen, as every selection change, hover and list event does.
+    @Benchmark
+    public int repaintPage() {
+        return driver.renderRows(size / 2, PAGE);
+    }
+
+    // Scrolls a page at a time, so every row is painted for the first time.
+    @Benchmark
+    public int scrollPage() {
+        offset = (offset + PAGE) % (size - PAGE);
+        return driver.renderRows(offset, PAGE);
+    }
+
+    @Benchmark
+    public int formatDates() {
+        offset = (offset + PAGE) % (size - PAGE);
+        return driver.formatDates(offset, PAGE);
+    }
+
+    @Benchmark
+    public long matchFilter() {
+        return driver.countMatching("PENDING+HIGH");
+    }
+}
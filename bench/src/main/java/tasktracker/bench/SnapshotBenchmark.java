@@ -0,0 +1,45 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// saveTasks: the copy-and-write half of a journal compaction, per storage format. With
+// "lazy" the tasks being written still have their descriptions in the mapped file.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    int size;
+
+    @Param({ "text", "binary", "lazy" })
+    String format;
+
+    private final Driver driver = Driver.load();
+    private final Path target = Paths.get("snapshot-out");
+    private boolean binary;
+
+    @Setup(Level.Trial)
+    public void open() {
+        binary = !format.equals("text");
+        Workspace.install(Workspace.generated(driver, size, binary ? ".dat" : ".txt"), binary);
+        driver.open(false, binary, format.equals("lazy"), 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        driver.close();
+    }
+
+    @Benchmark
+    public void saveTasks() throws IOException {
+        driver.writeSnapshot(target, binary);
+    }
+}
@@ -0,0 +1,57 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// A whole TaskManager start (loadTasks) over a snapshot of the given size, per storage
+// format. "lazy" is the binary format with descriptions left in the mapped file. The
+// background variants start as the GUI does: firstRows is how long until the list can
+// show tasks, loadInBackground how long until all of them are in. StartupTime measures
+// the whole GUI, JVM start included.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    int size;
+
+    @Param({ "text", "binary", "lazy" })
+    String format;
+
+    private final Driver driver = Driver.load();
+    private boolean binary;
+
+    @Setup(Level.Trial)
+    public void install() {
+        binary = !format.equals("text");
+        Workspace.install(Workspace.generated(driver, size, binary ? ".dat" : ".txt"), binary);
+    }
+
+    @Benchmark
+    public int loadTasks() {
+        driver.open(false, binary, format.equals("lazy"), 1);
+        int loaded = driver.size();
+        driver.close();
+        return loaded;
+    }
+
+    @Benchmark
+    public int firstRows() {
+        return driver.openInBackground(binary, format.equals("lazy"), false);
+    }
+
+    @Benchmark
+    public int loadInBackground() {
+        return driver.openInBackground(binary, format.equals("lazy"), true);
+    }
+
+    // Closing waits for a background load to finish, which firstRows leaves running.
+    @TearDown(Level.Invocation)
+    public void close() {
+        driver.close();
+    }
+}
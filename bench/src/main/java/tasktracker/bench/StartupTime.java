@@ -0,0 +1,122 @@
+package tasktracker.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Starts the GUI in fresh JVMs over a generated tasks.txt and reports time to first frame
+// (the window is shown) and time to interactive (every task is loaded and queued actions
+// would run), both from JVM start as the GUI reports them with
+// -Dtasktracker.startupTiming=exit. Needs a display. --blocking loads the tasks before
+// the window is built, as before progressive startup; --cds runs with a class-data
+// sharing archive made by the app module's appcds profile. Run it from a scratch
+// directory like the benchmarks:
+//   java -cp benchmarks.jar tasktracker.bench.StartupTime --jar ../../app/target/tasktracker-1.0-SNAPSHOT.jar
+public class StartupTime {
+    private static final Pattern REPORT = Pattern.compile("startup first-frame=(-?\\d+)ms interactive=(-?\\d+)ms");
+
+    public static void main(String[] args) throws Exception {
+        String jar = "../../app/target/tasktracker-1.0-SNAPSHOT.jar";
+        String cds = null;
+        int size = 100000;
+        int runs = 5;
+        boolean progressive = true;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--jar":
+                    jar = value;
+                    i++;
+                    break;
+                case "--cds":
+                    cds = value;
+                    i++;
+                    break;
+                case "--tasks":
+                    size = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--blocking":
+                    progressive = false;
+                    break;
+                default:
+                    System.out.println("Usage: StartupTime [--jar PATH] [--cds ARCHIVE] [--tasks N] [--runs N]"
+                            + " [--blocking]");
+                    System.exit(1);
+            }
+        }
+        if (!Files.exists(Paths.get(jar))) {
+            System.out.println("No application jar at " + jar + "; build it with mvn package or pass --jar");
+            System.exit(1);
+        }
+
+        Driver driver = Driver.load();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (cds != null) {
+            command.add("-XX:SharedArchiveFile=" + cds);
+        }
+        command.add("-Dtasktracker.startupTiming=exit");
+        command.add("-Dtasktracker.progressive=" + progressive);
+        command.add("-jar");
+        command.add(jar);
+
+        long[] firstFrame = new long[runs];
+        long[] interactive = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            Workspace.install(Workspace.generated(driver, size, ".txt"), false);
+            long[] times = startOnce(command);
+            firstFrame[run] = times[0];
+            interactive[run] = times[1];
+            System.out.printf("run %d: first frame %d ms, interactive %d ms%n", run + 1, times[0], times[1]);
+        }
+        Workspace.clean();
+        System.out.printf("%,d tasks, %s%s: first frame median %d ms, interactive median %d ms%n", size,
+                progressive ? "progressive" : "blocking", cds != null ? ", CDS" : "",
+                median(firstFrame), median(interactive));
+    }
+
+    private static long[] startOnce(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] times = null;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                Matcher m = REPORT.matcher(line);
+                if (m.find()) {
+                    times = new long[] {Long.parseLong(m.group(1)), Long.parseLong(m.group(2))};
+                } else if (times == null) {
+                    System.out.println("  " + line);
+                }
+            }
+        }
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+        if (times == null) {
+            throw new IOException("The GUI exited without reporting its startup time (exit code "
+                    + process.exitValue() + "); is there a display?");
+        }
+        return times;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,44 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.concurrent.TimeUnit;
+
+// A full scan over the manager's tasks as plain Task objects against the same scan when
+// they are views over TaskStore columns (tasktracker.columnar). TaskFootprintTest checks
+// the heap side of the comparison.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class StoreBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    int size;
+
+    private final Driver driver = Driver.load();
+
+    @Setup(Level.Trial)
+    public void open(BenchmarkParams params) {
+        Workspace.install(Workspace.generated(driver, size, ".txt"), false);
+        driver.open(false, false, false, 1, params.getBenchmark().endsWith(".scanStore"));
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        driver.close();
+    }
+
+    @Benchmark
+    public long scanTasks() {
+        return driver.scanTasks();
+    }
+
+    // Runs on a columnar manager; see open().
+    @Benchmark
+    public long scanStore() {
+        return driver.scanTasks();
+    }
+}
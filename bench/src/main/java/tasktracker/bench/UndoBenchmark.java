@@ -0,0 +1,53 @@
+package tasktracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Clear Completed Tasks and undoing it. About a third of the generated tasks are
+// completed, so at size 300000 each call moves about 100k tasks. Undo should cost about
+// what the clear did, since both only touch the cleared tasks.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Thread)
+public class UndoBenchmark {
+    @Param({ "30000", "300000" })
+    int size;
+
+    private final Driver driver = Driver.load();
+    private Path generated;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        generated = Workspace.generated(driver, size, ".txt");
+    }
+
+    @Setup(Level.Iteration)
+    public void open(BenchmarkParams params) {
+        Workspace.install(generated, false);
+        driver.open(false, false, false, 1);
+        if (params.getBenchmark().endsWith("undoClear")) {
+            driver.deleteCompletedTasks();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+        driver.close();
+    }
+
+    @Benchmark
+    public void clearCompleted() {
+        driver.deleteCompletedTasks();
+    }
+
+    @Benchmark
+    public boolean undoClear() {
+        return driver.undo();
+    }
+}
@@ -0,0 +1,73 @@
+package tasktracker.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// TaskManager reads and writes tasks.txt and friends in the working directory, so the
+// benchmarks must run from a scratch directory. A marker file records that the directory
+// is one; a directory holding tasks but no marker is refused rather than wiped.
+public final class Workspace {
+    private static final String MARKER = ".tasktracker-bench";
+    private static final String[] MANAGER_FILES = {
+            "tasks.txt", "tasks.dat", "tasks.journal", "tasks.journal.old",
+            "tasks.txt.tmp", "tasks.dat.tmp", "tasks.txt.migrated"
+    };
+
+    private Workspace() {
+    }
+
+    // Deletes everything TaskManager keeps, leaving generated input files alone.
+    public static void clean() {
+        Path dir = Paths.get("").toAbsolutePath();
+        try {
+            if (!Files.exists(dir.resolve(MARKER))) {
+                if (Files.exists(dir.resolve("tasks.txt")) || Files.exists(dir.resolve("tasks.dat"))) {
+                    throw new IllegalStateException("Refusing to delete the tasks in " + dir
+                            + "; run the benchmarks from an empty directory");
+                }
+                Files.createFile(dir.resolve(MARKER));
+            }
+            for (String name : MANAGER_FILES) {
+                Files.deleteIfExists(dir.resolve(name));
+            }
+            Path archive = dir.resolve("archive");
+            if (Files.exists(archive)) {
+                try (Stream<Path> files = Files.walk(archive)) {
+                    for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                        Files.delete(p);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The snapshot TaskManager will load, copied from a generated file.
+    public static void install(Path generated, boolean binary) {
+        clean();
+        try {
+            Files.copy(generated, Paths.get(binary ? "tasks.dat" : "tasks.txt"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A generated input file, created once and reused by later trials.
+    public static Path generated(Driver driver, int size, String extension) {
+        Path file = Paths.get("generated-" + size + extension);
+        try {
+            if (!Files.exists(file)) {
+                Path partial = Paths.get(file + ".part");
+                driver.generate(partial, size, 42);
+                Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file;
+    }
+}
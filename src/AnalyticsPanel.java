@@ -0,0 +1,181 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.LocalDate;
+import java.util.List;
+
+// Dashboard over TaskManager's analytics: completions and backlog per period as bar
+// charts, and time-to-complete by priority. Everything is read from the per-day
+// aggregates, so refreshing is cheap enough to do on every change.
+public class AnalyticsPanel extends JPanel implements TaskListener {
+    private static final String[] RANGES = { "Last 7 Days", "Last 30 Days", "Last 12 Weeks", "Last Year" };
+    private static final int[] RANGE_DAYS = { 7, 30, 84, 364 };
+    private static final int[] RANGE_BUCKET_DAYS = { 1, 1, 7, 7 };
+
+    private final TaskManager manager;
+    private final JComboBox<String> rangeCombo = new JComboBox<>(RANGES);
+    private final BarChart completedChart = new BarChart(new Color(39, 174, 96));
+    private final BarChart backlogChart = new BarChart(new Color(41, 128, 185));
+    private final DefaultTableModel latencyModel = new DefaultTableModel(
+            new String[] { "Priority", "Completed", "Mean", "Median", "90th %" }, 0) {
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+
+    public AnalyticsPanel(TaskManager manager) {
+        this.manager = manager;
+        setLayout(new BorderLayout(10, 10));
+        setBorder(new EmptyBorder(15, 15, 15, 15));
+        setBackground(new Color(236, 240, 241));
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        top.setOpaque(false);
+        JLabel rangeLabel = new JLabel("Range:");
+        rangeLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        top.add(rangeLabel);
+        rangeCombo.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        rangeCombo.addActionListener(e -> refresh());
+        top.add(rangeCombo);
+
+        JPanel charts = new JPanel(new GridLayout(2, 1, 0, 10));
+        charts.setOpaque(false);
+        charts.add(titled("Tasks Completed", completedChart));
+        charts.add(titled("Pending Backlog", backlogChart));
+
+        JTable latencyTable = new JTable(latencyModel);
+        latencyTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        latencyTable.setRowHeight(22);
+        JScrollPane tableScroll = new JScrollPane(latencyTable);
+        tableScroll.setPreferredSize(new Dimension(0, 120));
+
+        add(top, BorderLayout.NORTH);
+        add(charts, BorderLayout.CENTER);
+        add(titled("Time to Complete", tableScroll), BorderLayout.SOUTH);
+        refresh();
+    }
+
+    // Register with SwingUtilities::invokeLater as the executor.
+    @Override
+    public void tasksChanged(List<TaskEvent> events) {
+        refresh();
+    }
+
+    public void refresh() {
+        int range = rangeCombo.getSelectedIndex();
+        int bucketDays = RANGE_BUCKET_DAYS[range];
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(RANGE_DAYS[range] - 1);
+
+        completedChart.setValues(manager.getCompletionsPerPeriod(from, to, bucketDays), from, bucketDays);
+        backlogChart.setValues(manager.getBacklogPerPeriod(from, to, bucketDays), from, bucketDays);
+
+        latencyModel.setRowCount(0);
+        for (Priority priority : Priority.values()) {
+            addLatencyRow(priority.name(), manager.getCompletionLatency(from, to, priority));
+        }
+        addLatencyRow("All", manager.getCompletionLatency(from, to, null));
+    }
+
+    private void addLatencyRow(String label, LatencyHistogram h) {
+        latencyModel.addRow(new Object[] {
+                label,
+                h.getCount(),
+                h.isEmpty() ? "-" : formatMinutes(h.getMean()),
+                h.isEmpty() ? "-" : formatMinutes(h.getPercentile(0.5)),
+                h.isEmpty() ? "-" : formatMinutes(h.getPercentile(0.9))
+        });
+    }
+
+    private static String formatMinutes(double minutes) {
+        if (minutes < 60) {
+            return String.format("%.0fm", minutes);
+        }
+        if (minutes < 24 * 60) {
+            return String.format("%.1fh", minutes / 60);
+        }
+        return String.format("%.1fd", minutes / (24 * 60));
+    }
+
+    private static JPanel titled(String title, JComponent content) {
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.setOpaque(false);
+        JLabel label = new JLabel(title);
+        label.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        label.setForeground(new Color(44, 62, 80));
+        panel.add(label, BorderLayout.NORTH);
+        panel.add(content, BorderLayout.CENTER);
+        return panel;
+    }
+
+    // Plain bar chart with the first and last period labelled underneath.
+    private static class BarChart extends JComponent {
+        private final Color barColor;
+        private long[] values = new long[0];
+        private LocalDate from;
+        private int bucketDays;
+
+        BarChart(Color barColor) {
+            this.barColor = barColor;
+            setPreferredSize(new Dimension(500, 140));
+            setBackground(Color.WHITE);
+            setOpaque(true);
+            ToolTipManager.sharedInstance().registerComponent(this);
+        }
+
+        void setValues(long[] values, LocalDate from, int bucketDays) {
+            this.values = values;
+            this.from = from;
+            this.bucketDays = bucketDays;
+            repaint();
+        }
+
+        @Override
+        public String getToolTipText(java.awt.event.MouseEvent e) {
+            int i = indexAt(e.getX());
+            return i < 0 ? null : from.plusDays((long) i * bucketDays) + ": " + values[i];
+        }
+
+        private int indexAt(int x) {
+            if (values.length == 0) {
+                return -1;
+            }
+            int i = (x - 5) * values.length / Math.max(1, getWidth() - 10);
+            return i >= 0 && i < values.length ? i : -1;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            if (values.length == 0) {
+                return;
+            }
+            long max = 0;
+            for (long v : values) {
+                max = Math.max(max, v);
+            }
+            long scale = Math.max(1, max);
+            FontMetrics fm = g.getFontMetrics();
+            int labelHeight = fm.getHeight();
+            int chartHeight = getHeight() - labelHeight - 10;
+            double barWidth = (getWidth() - 10) / (double) values.length;
+
+            g.setColor(barColor);
+            for (int i = 0; i < values.length; i++) {
+                int h = (int) (values[i] * chartHeight / scale);
+                int x = 5 + (int) (i * barWidth);
+                g.fillRect(x, 5 + chartHeight - h, Math.max(1, (int) barWidth - 2), h);
+            }
+
+            g.setColor(Color.DARK_GRAY);
+            int baseline = getHeight() - 4;
+            g.drawString(from.toString(), 5, baseline);
+            String last = from.plusDays((long) (values.length - 1) * bucketDays).toString();
+            g.drawString(last, getWidth() - 5 - fm.stringWidth(last), baseline);
+            String peak = "max " + max;
+            g.drawString(peak, (getWidth() - fm.stringWidth(peak)) / 2, baseline);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Searches the archive and restores the selected tasks to the task list. Both run on
+// SwingWorkers since they decompress archive blocks.
+public class ArchivePanel extends JPanel {
+    private static final int MAX_RESULTS = 1000;
+
+    private final TaskManager manager;
+    private final JTextField queryField = new JTextField(25);
+    private final DefaultListModel<Task> results = new DefaultListModel<>();
+    private final JList<Task> resultList = new JList<>(results);
+    private final JButton searchButton = new JButton("Search");
+    private final JButton restoreButton = new JButton("Restore Selected");
+    private final JLabel statusLabel = new JLabel(" ");
+
+    public ArchivePanel(TaskManager manager) {
+        this.manager = manager;
+        setLayout(new BorderLayout(10, 10));
+        setBorder(new EmptyBorder(15, 15, 15, 15));
+        setBackground(new Color(236, 240, 241));
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        top.setOpaque(false);
+        JLabel queryLabel = new JLabel("Search archive:");
+        queryLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        top.add(queryLabel);
+        queryField.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        queryField.addActionListener(e -> search());
+        top.add(queryField);
+        searchButton.addActionListener(e -> search());
+        top.add(searchButton);
+
+        resultList.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        resultList.setCellRenderer(new TaskCellRenderer());
+
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.setOpaque(false);
+        statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        bottom.add(statusLabel, BorderLayout.CENTER);
+        restoreButton.addActionListener(e -> restoreSelected());
+        bottom.add(restoreButton, BorderLayout.EAST);
+
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(resultList), BorderLayout.CENTER);
+        add(bottom, BorderLayout.SOUTH);
+        statusLabel.setText(manager.getArchivedCount() + " tasks archived");
+    }
+
+    private void search() {
+        String query = queryField.getText();
+        if (query.trim().isEmpty()) {
+            return;
+        }
+        setBusy(true, "Searching...");
+        new SwingWorker<List<Task>, Void>() {
+            protected List<Task> doInBackground() {
+                return manager.searchArchive(query, MAX_RESULTS);
+            }
+
+            protected void done() {
+                results.clear();
+                try {
+                    List<Task> found = get();
+                    for (Task t : found) {
+                        results.addElement(t);
+                    }
+                    setBusy(false, found.size() + (found.size() == MAX_RESULTS ? "+" : "") + " matches");
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    setBusy(false, "Search failed");
+                }
+            }
+        }.execute();
+    }
+
+    private void restoreSelected() {
+        List<Task> selected = resultList.getSelectedValuesList();
+        if (selected.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Task t : selected) {
+            ids.add(t.getId());
+        }
+        setBusy(true, "Restoring...");
+        new SwingWorker<List<Task>, Void>() {
+            protected List<Task> doInBackground() {
+                return manager.restoreFromArchive(ids);
+            }
+
+            protected void done() {
+                try {
+                    List<Task> restored = get();
+                    for (Task t : selected) {
+                        results.removeElement(t);
+                    }
+                    setBusy(false, "Restored " + restored.size() + " tasks");
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    setBusy(false, "Restore failed");
+                }
+            }
+        }.execute();
+    }
+
+    private void setBusy(boolean busy, String status) {
+        searchButton.setEnabled(!busy);
+        restoreButton.setEnabled(!busy);
+        statusLabel.setText(status);
+    }
+}
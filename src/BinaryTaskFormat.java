@@ -0,0 +1,173 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Compact snapshot layout, read through a memory map:
+//   file header   magic int, version short, seq long, task count int
+//   per task      id int, flags byte, priority byte, created long, completed long,
+//                 description length int, description UTF-8 bytes,
+//                 then if flags has SCHEDULED: due long, remind long, recurrence byte,
+//                 then if flags has FIRST: the date the task's series started, long
+// Timestamps are epoch millis of the local date-time taken as UTC; completed, due and
+// remind are -1 when unset. Descriptions are length-prefixed, so they may contain any
+// character. Version 1 files, from before schedules, and version 2 ones, from before
+// series start dates, still read.
+//
+// In lazy mode descriptions are not decoded on read; each task points back into the
+// mapped file instead (see LazyDescriptions).
+//
+// Windows cannot rename a snapshot over a file that is still mapped, and a mapping lasts
+// until its buffer is garbage collected. There the file is read into the heap, and lazy
+// mode, which keeps the mapping for good, is refused.
+public class BinaryTaskFormat implements TaskFormat {
+    private static final int MAGIC = 0x54544231; // "TTB1"
+    private static final short VERSION = 3;
+    private static final int FILE_HEADER_BYTES = 4 + 2 + 8 + 4;
+    private static final byte FLAG_COMPLETED = 1;
+    private static final byte FLAG_SCHEDULED = 2;
+    private static final byte FLAG_FIRST = 4;
+    // Progress is reported every 64K tasks.
+    private static final int PROGRESS_MASK = (1 << 16) - 1;
+    static final boolean CAN_MAP = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final boolean lazy;
+
+    public BinaryTaskFormat() {
+        this(false);
+    }
+
+    public BinaryTaskFormat(boolean lazy) {
+        if (lazy && !CAN_MAP) {
+            System.out.println("Lazy descriptions need Linux or macOS; decoding them all on load");
+        }
+        this.lazy = lazy && CAN_MAP;
+    }
+
+    @Override
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    @Override
+    public long read(Path path, Consumer<Task> sink) throws IOException {
+        return read(path, sink, percent -> { });
+    }
+
+    @Override
+    public long read(Path path, Consumer<Task> sink, IntConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + size + " bytes");
+            }
+            ByteBuffer buf = CAN_MAP ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : readAll(channel, (int) size);
+            if (size < FILE_HEADER_BYTES || buf.getInt() != MAGIC) {
+                throw new IOException("Not a binary task snapshot: " + path);
+            }
+            short version = buf.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            long seq = buf.getLong();
+            int count = buf.getInt();
+            LazyDescriptions descriptions = lazy ? new LazyDescriptions(buf) : null;
+
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int id = buf.getInt();
+                byte flags = buf.get();
+                int priority = buf.get();
+                long created = buf.getLong();
+                long completed = buf.getLong();
+                int length = buf.getInt();
+                LocalDateTime createdDate = toDateTime(created);
+                LocalDateTime completedDate = completed < 0 ? null : toDateTime(completed);
+
+                Task t;
+                if (lazy) {
+                    t = new Task(id, descriptions, buf.position(), length,
+                            (flags & FLAG_COMPLETED) != 0, Priority.ofCode(priority), createdDate, completedDate);
+                    buf.position(buf.position() + length);
+                } else {
+                    if (length > scratch.length) {
+                        scratch = new byte[Math.max(length, scratch.length * 2)];
+                    }
+                    buf.get(scratch, 0, length);
+                    t = new Task(id, new String(scratch, 0, length, StandardCharsets.UTF_8),
+                            (flags & FLAG_COMPLETED) != 0, Priority.ofCode(priority), createdDate, completedDate);
+                }
+                if ((flags & FLAG_SCHEDULED) != 0) {
+                    long due = buf.getLong();
+                    long remind = buf.getLong();
+                    Recurrence recurrence = Recurrence.ofCode(buf.get());
+                    LocalDateTime first = (flags & FLAG_FIRST) != 0 ? toDateTime(buf.getLong()) : null;
+                    t.setSchedule(new TaskSchedule(due < 0 ? null : toDateTime(due),
+                            remind < 0 ? null : toDateTime(remind), recurrence, first));
+                }
+                sink.accept(t);
+                if ((i & PROGRESS_MASK) == PROGRESS_MASK) {
+                    progress.accept((int) ((i + 1L) * 100 / count));
+                }
+            }
+            progress.accept(100);
+            return seq;
+        }
+    }
+
+    @Override
+    public void write(Path path, List<Task> tasks, long seq) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        header.putInt(MAGIC).putShort(VERSION).putLong(seq).putInt(tasks.size());
+        ParallelSnapshot.write(path, header.array(), tasks, (chunk, bytes) -> {
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (Task t : chunk) {
+                byte[] desc = t.getDescriptionBytes();
+                TaskSchedule schedule = t.getSchedule();
+                out.writeInt(t.getId());
+                out.writeByte((t.isCompleted() ? FLAG_COMPLETED : 0) | (schedule != null ? FLAG_SCHEDULED : 0)
+                        | (schedule != null && schedule.getFirst() != null ? FLAG_FIRST : 0));
+                out.writeByte(t.getPriority().ordinal());
+                out.writeLong(toMillis(t.getCreatedDate()));
+                out.writeLong(t.getCompletedDate() != null ? toMillis(t.getCompletedDate()) : -1);
+                out.writeInt(desc.length);
+                out.write(desc);
+                if (schedule != null) {
+                    out.writeLong(schedule.getDue() != null ? toMillis(schedule.getDue()) : -1);
+                    out.writeLong(schedule.getRemindAt() != null ? toMillis(schedule.getRemindAt()) : -1);
+                    out.writeByte(schedule.getRecurrence().ordinal());
+                    if (schedule.getFirst() != null) {
+                        out.writeLong(toMillis(schedule.getFirst()));
+                    }
+                }
+            }
+        });
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static ByteBuffer readAll(FileChannel channel, int size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) {
+                throw new IOException("Snapshot ended early");
+            }
+        }
+        return buf.flip();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
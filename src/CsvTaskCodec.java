@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// RFC 4180 CSV with a header row. Columns are found by header name, so files written by
+// other tools can be imported as long as they have a description column.
+public class CsvTaskCodec implements TaskCodec {
+    private static final String HEADER = "id,description,completed,priority,created,completed_date,due,remind_at,recurrence";
+
+    private int descriptionColumn = -1;
+    private int completedColumn = -1;
+    private int priorityColumn = -1;
+    private int createdColumn = -1;
+    private int completedDateColumn = -1;
+    private int dueColumn = -1;
+    private int remindColumn = -1;
+    private int recurrenceColumn = -1;
+
+    @Override
+    public void writeHeader(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write("\r\n");
+    }
+
+    @Override
+    public void write(Task t, Writer out) throws IOException {
+        out.write(Integer.toString(t.getId()));
+        out.write(',');
+        writeField(t.getDescription(), out);
+        out.write(',');
+        out.write(t.isCompleted() ? "true" : "false");
+        out.write(',');
+        writeField(t.getPriority().name(), out);
+        out.write(',');
+        out.write(t.getCreatedDate().toString());
+        out.write(',');
+        if (t.getCompletedDate() != null) {
+            out.write(t.getCompletedDate().toString());
+        }
+        TaskSchedule s = t.getSchedule();
+        out.write(',');
+        if (s != null && s.getDue() != null) {
+            out.write(s.getDue().toString());
+        }
+        out.write(',');
+        if (s != null && s.getRemindAt() != null) {
+            out.write(s.getRemindAt().toString());
+        }
+        out.write(',');
+        if (s != null && s.isRecurring()) {
+            out.write(s.getRecurrence().name());
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public boolean hasHeader() {
+        return true;
+    }
+
+    @Override
+    public void readHeader(String record) {
+        List<String> names = new ArrayList<>();
+        parseRecords(record, fields -> names.addAll(fields));
+        for (int i = 0; i < names.size(); i++) {
+            switch (names.get(i).trim().toLowerCase()) {
+                case "description":
+                    descriptionColumn = i;
+                    break;
+                case "completed":
+                    completedColumn = i;
+                    break;
+                case "priority":
+                    priorityColumn = i;
+                    break;
+                case "created":
+                    createdColumn = i;
+                    break;
+                case "completed_date":
+                    completedDateColumn = i;
+                    break;
+                case "due":
+                    dueColumn = i;
+                    break;
+                case "remind_at":
+                    remindColumn = i;
+                    break;
+                case "recurrence":
+                    recurrenceColumn = i;
+                    break;
+            }
+        }
+        if (descriptionColumn < 0) {
+            throw new IllegalArgumentException("CSV header has no description column");
+        }
+    }
+
+    @Override
+    public boolean quotedNewlines() {
+        return true;
+    }
+
+    @Override
+    public List<Task> parse(String chunk, int[] skipped) {
+        List<Task> tasks = new ArrayList<>();
+        parseRecords(chunk, fields -> {
+            try {
+                tasks.add(TaskTransfer.importedTask(
+                        field(fields, descriptionColumn),
+                        Boolean.parseBoolean(field(fields, completedColumn)),
+                        field(fields, priorityColumn),
+                        date(field(fields, createdColumn)),
+                        date(field(fields, completedDateColumn)),
+                        date(field(fields, dueColumn)),
+                        date(field(fields, remindColumn)),
+                        field(fields, recurrenceColumn)));
+            } catch (RuntimeException e) {
+                skipped[0]++;
+            }
+        });
+        return tasks;
+    }
+
+    private interface RecordSink {
+        void accept(List<String> fields);
+    }
+
+    // Splits text into records and fields, honouring quotes, doubled quotes and line
+    // breaks inside quoted values. Blank lines are ignored.
+    private static void parseRecords(String text, RecordSink sink) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStart = true;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < n && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"':
+                    if (fieldStart) {
+                        quoted = true;
+                    } else {
+                        field.append(c);
+                    }
+                    fieldStart = false;
+                    break;
+                case ',':
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    fieldStart = true;
+                    break;
+                case '\r':
+                    break;
+                case '\n':
+                    if (!fields.isEmpty() || field.length() > 0) {
+                        fields.add(field.toString());
+                        sink.accept(fields);
+                        fields = new ArrayList<>();
+                    }
+                    field.setLength(0);
+                    fieldStart = true;
+                    break;
+                default:
+                    field.append(c);
+                    fieldStart = false;
+            }
+        }
+        if (!fields.isEmpty() || field.length() > 0) {
+            fields.add(field.toString());
+            sink.accept(fields);
+        }
+    }
+
+    private static void writeField(String value, Writer out) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : "";
+    }
+
+    private static LocalDateTime date(String value) {
+        return value.isEmpty() ? null : LocalDateTime.parse(value.trim());
+    }
+}
@@ -0,0 +1,87 @@
+import javax.swing.*;
+
+// Watches the event dispatch thread from a daemon thread: a heartbeat is posted with
+// invokeLater, and if it hasn't run within the threshold the EDT's stack is captured
+// while it is still stuck. Each stall's full length goes to the edt.stall operation.
+public class EdtMonitor {
+    private static final long HEARTBEAT_MILLIS = 100;
+
+    private final TaskMetrics metrics;
+    private final OperationStats stallTime;
+    private final long thresholdNanos;
+    private volatile Thread edt;
+    private volatile long postedAt;
+    private volatile boolean pending;
+    private Thread watcher;
+
+    public EdtMonitor(TaskMetrics metrics, long thresholdMillis) {
+        this.metrics = metrics;
+        this.stallTime = metrics.operation("edt.stall");
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    public synchronized void start() {
+        if (watcher != null) {
+            return;
+        }
+        watcher = new Thread(this::watch, "edt-monitor");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public synchronized void stop() {
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long posted = System.nanoTime();
+                postedAt = posted;
+                pending = true;
+                SwingUtilities.invokeLater(this::beat);
+                boolean reported = false;
+                Thread.sleep(HEARTBEAT_MILLIS);
+                while (pending) {
+                    if (!reported && System.nanoTime() - posted > thresholdNanos) {
+                        captureStall(System.nanoTime() - posted);
+                        reported = true;
+                    }
+                    Thread.sleep(HEARTBEAT_MILLIS / 4);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs on the EDT. Only delays past the threshold are stalls; shorter ones are normal
+    // queueing behind paint and input events.
+    private void beat() {
+        edt = Thread.currentThread();
+        long delay = System.nanoTime() - postedAt;
+        pending = false;
+        if (delay > thresholdNanos) {
+            stallTime.record(postedAt);
+            metrics.count("edt.stalls", 1);
+            System.out.println("EDT stalled for " + delay / 1_000_000 + " ms");
+        }
+    }
+
+    private void captureStall(long soFarNanos) {
+        Thread t = edt;
+        if (t == null) {
+            return;
+        }
+        StringBuilder trace = new StringBuilder();
+        trace.append("blocked ").append(soFarNanos / 1_000_000).append(" ms at ")
+                .append(java.time.LocalDateTime.now()).append('\n');
+        for (StackTraceElement e : t.getStackTrace()) {
+            trace.append("    at ").append(e).append('\n');
+        }
+        metrics.note("edt.lastStall", trace.toString());
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+// Open-addressing int -> Task map with linear probing, so id lookups don't box keys
+// or allocate an entry per task.
+public class IntTaskMap {
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private Task[] values;
+    private int size;
+
+    public IntTaskMap() {
+        this(16);
+    }
+
+    public IntTaskMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new Task[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Task get(int key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    // Task ids start at 1, so 0 doubles as the empty-slot marker.
+    public void put(int key, Task value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Task id must not be " + EMPTY);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    public Task remove(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        Task removed = values[i];
+        size--;
+
+        // Backward-shift deletion keeps probe chains intact without tombstones.
+        int hole = i;
+        for (int j = (hole + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Task[] oldValues = values;
+        keys = new int[capacity];
+        values = new Task[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
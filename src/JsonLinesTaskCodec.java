@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Line-delimited JSON: one flat object per line with the keys id, description,
+// completed, priority, created and completedDate, plus due, remindAt and recurrence for
+// scheduled tasks. Unknown keys are ignored on import.
+public class JsonLinesTaskCodec implements TaskCodec {
+
+    @Override
+    public void writeHeader(Writer out) {
+    }
+
+    @Override
+    public void write(Task t, Writer out) throws IOException {
+        out.write("{\"id\":");
+        out.write(Integer.toString(t.getId()));
+        out.write(",\"description\":");
+        writeString(t.getDescription(), out);
+        out.write(",\"completed\":");
+        out.write(t.isCompleted() ? "true" : "false");
+        out.write(",\"priority\":");
+        writeString(t.getPriority().name(), out);
+        out.write(",\"created\":\"");
+        out.write(t.getCreatedDate().toString());
+        out.write("\",\"completedDate\":");
+        if (t.getCompletedDate() != null) {
+            out.write('"');
+            out.write(t.getCompletedDate().toString());
+            out.write('"');
+        } else {
+            out.write("null");
+        }
+        TaskSchedule s = t.getSchedule();
+        if (s != null) {
+            writeDate(",\"due\":", s.getDue(), out);
+            writeDate(",\"remindAt\":", s.getRemindAt(), out);
+            out.write(",\"recurrence\":");
+            writeString(s.getRecurrence().name(), out);
+        }
+        out.write("}\n");
+    }
+
+    @Override
+    public boolean hasHeader() {
+        return false;
+    }
+
+    @Override
+    public void readHeader(String record) {
+    }
+
+    @Override
+    public boolean quotedNewlines() {
+        return false;
+    }
+
+    @Override
+    public List<Task> parse(String chunk, int[] skipped) {
+        List<Task> tasks = new ArrayList<>();
+        int start = 0;
+        while (start < chunk.length()) {
+            int end = chunk.indexOf('\n', start);
+            if (end < 0) {
+                end = chunk.length();
+            }
+            int first = start;
+            while (first < end && Character.isWhitespace(chunk.charAt(first))) {
+                first++;
+            }
+            if (first < end) {
+                try {
+                    tasks.add(new ObjectParser(chunk, first, end).parse());
+                } catch (RuntimeException e) {
+                    skipped[0]++;
+                }
+            }
+            start = end + 1;
+        }
+        return tasks;
+    }
+
+    private static void writeDate(String key, LocalDateTime date, Writer out) throws IOException {
+        out.write(key);
+        if (date != null) {
+            out.write('"');
+            out.write(date.toString());
+            out.write('"');
+        } else {
+            out.write("null");
+        }
+    }
+
+    private static void writeString(String value, Writer out) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    // Reads one flat object whose values are strings, numbers, booleans or null.
+    private static class ObjectParser {
+        private final String text;
+        private final int end;
+        private int pos;
+
+        ObjectParser(String text, int start, int end) {
+            this.text = text;
+            this.pos = start;
+            this.end = end;
+        }
+
+        Task parse() {
+            String description = null;
+            boolean completed = false;
+            String priority = null;
+            LocalDateTime created = null;
+            LocalDateTime completedDate = null;
+            LocalDateTime due = null;
+            LocalDateTime remindAt = null;
+            String recurrence = null;
+
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    String key = string();
+                    expect(':');
+                    Object value = value();
+                    switch (key) {
+                        case "description":
+                            description = (String) value;
+                            break;
+                        case "completed":
+                            completed = Boolean.TRUE.equals(value);
+                            break;
+                        case "priority":
+                            priority = (String) value;
+                            break;
+                        case "created":
+                            created = value == null ? null : LocalDateTime.parse((String) value);
+                            break;
+                        case "completedDate":
+                            completedDate = value == null ? null : LocalDateTime.parse((String) value);
+                            break;
+                        case "due":
+                            due = value == null ? null : LocalDateTime.parse((String) value);
+                            break;
+                        case "remindAt":
+                            remindAt = value == null ? null : LocalDateTime.parse((String) value);
+                            break;
+                        case "recurrence":
+                            recurrence = (String) value;
+                            break;
+                    }
+                    char c = next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw new IllegalArgumentException("Expected , or } at " + pos);
+                    }
+                }
+            }
+            if (description == null) {
+                throw new IllegalArgumentException("Missing description");
+            }
+            return TaskTransfer.importedTask(description, completed, priority, created, completedDate, due, remindAt,
+                    recurrence);
+        }
+
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            int start = pos;
+            while (pos < end && ",}".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos).trim();
+            switch (literal) {
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                case "null":
+                    return null;
+                default:
+                    return Double.valueOf(literal);
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= end) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(e);
+                }
+            }
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw new IllegalArgumentException("Expected " + c + " at " + pos);
+            }
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private char peek() {
+            while (pos < end && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos >= end) {
+                throw new IllegalArgumentException("Unexpected end of record");
+            }
+            return text.charAt(pos);
+        }
+    }
+}
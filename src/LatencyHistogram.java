@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+// Counts of durations in whole units (minutes for task analytics, microseconds for
+// operation metrics), in log-scale buckets: exact below 4, then four buckets per
+// doubling, so any percentile is within about 12% of the true value. Histograms can be
+// added and subtracted, which lets per-day histograms be kept incrementally and merged
+// over any range. The bucket array only grows as far as the longest duration seen, since
+// one is kept per day and priority.
+public class LatencyHistogram {
+    static final int BUCKETS = 120;
+
+    private long[] counts = new long[8];
+    private long count;
+    private long total;
+
+    public LatencyHistogram() {
+    }
+
+    // Wraps bucket counts gathered elsewhere with bucketOf.
+    LatencyHistogram(long[] counts, long total) {
+        this.counts = counts;
+        for (long c : counts) {
+            count += c;
+        }
+        this.total = total;
+    }
+
+    public void add(long value) {
+        long m = Math.max(0, value);
+        int bucket = bucketOf(m);
+        if (bucket >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.min(BUCKETS, Math.max(bucket + 1, counts.length * 2)));
+        }
+        counts[bucket]++;
+        count++;
+        total += m;
+    }
+
+    public void remove(long value) {
+        long m = Math.max(0, value);
+        counts[bucketOf(m)]--;
+        count--;
+        total -= m;
+    }
+
+    public void addAll(LatencyHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    // The value below which the given fraction (0..1) of durations fall, taken as the
+    // midpoint of the bucket it lands in.
+    public double getPercentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (lowerBound(i) + lowerBound(i + 1) - 1) / 2.0;
+            }
+        }
+        return lowerBound(counts.length - 1);
+    }
+
+    // The total followed by the bucket counts, comma-separated, as TaskServer sends it.
+    String encode() {
+        StringBuilder out = new StringBuilder().append(total);
+        for (long c : counts) {
+            out.append(',').append(c);
+        }
+        return out.toString();
+    }
+
+    static LatencyHistogram decode(String text) {
+        String[] parts = text.split(",");
+        long[] counts = new long[parts.length - 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = Long.parseLong(parts[i + 1]);
+        }
+        return new LatencyHistogram(counts, Long.parseLong(parts[0]));
+    }
+
+    static int bucketOf(long value) {
+        if (value < 4) {
+            return (int) value;
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >> (octave - 2)) & 3;
+        return Math.min(BUCKETS - 1, 4 + (octave - 2) * 4 + sub);
+    }
+
+    private static long lowerBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int octave = (bucket - 4) / 4 + 2;
+        int sub = (bucket - 4) % 4;
+        return (long) (4 + sub) << (octave - 2);
+    }
+}
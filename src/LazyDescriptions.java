@@ -0,0 +1,62 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Task descriptions left encoded in a mapped snapshot and decoded only when a task is
+// shown or edited. Recently decoded strings are kept in a bounded LRU cache.
+//
+// The mapping stays valid after compaction renames a new snapshot over the file, since on
+// Linux and macOS the old file's data lives on until the mapping is released. Windows
+// refuses that rename while the file is mapped, so BinaryTaskFormat never enables lazy
+// mode there.
+public class LazyDescriptions {
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private final ByteBuffer buffer;
+    private final Map<Integer, String> cache;
+
+    public LazyDescriptions(ByteBuffer buffer) {
+        this(buffer, Integer.getInteger("tasktracker.descriptionCache", DEFAULT_CACHE_SIZE));
+    }
+
+    public LazyDescriptions(ByteBuffer buffer, int cacheSize) {
+        this.buffer = buffer;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public synchronized String get(int offset, int length) {
+        String description = cache.get(offset);
+        if (description == null) {
+            description = new String(bytes(offset, length), StandardCharsets.UTF_8);
+            cache.put(offset, description);
+        }
+        return description;
+    }
+
+    // Decodes without caching, unless already cached.
+    public synchronized String peek(int offset, int length) {
+        String description = cache.get(offset);
+        return description != null ? description : new String(bytes(offset, length), StandardCharsets.UTF_8);
+    }
+
+    public synchronized boolean isCached(int offset) {
+        return cache.containsKey(offset);
+    }
+
+    // Raw UTF-8 bytes, for re-encoding a snapshot without decoding or caching.
+    public byte[] bytes(int offset, int length) {
+        byte[] data = new byte[length];
+        buffer.get(offset, data, 0, length);
+        return data;
+    }
+
+    public synchronized int cachedCount() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Call count and latency histogram of one operation, recorded in microseconds with the
+// same buckets as LatencyHistogram. Recording is a few uncontended atomic adds, cheap
+// enough to leave on for every call.
+public class OperationStats implements OperationStatsMBean {
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(LatencyHistogram.BUCKETS);
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Records the time since startNanos, taken from System.nanoTime(), and returns it.
+    public long record(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        long micros = elapsed / 1000;
+        buckets.incrementAndGet(LatencyHistogram.bucketOf(micros));
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+        return elapsed;
+    }
+
+    // A point-in-time copy; concurrent calls may be half counted.
+    public LatencyHistogram snapshot() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new LatencyHistogram(counts, totalMicros.sum());
+    }
+
+    @Override
+    public long getCount() {
+        return snapshot().getCount();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return snapshot().getMean();
+    }
+
+    @Override
+    public double getP50Micros() {
+        return snapshot().getPercentile(0.5);
+    }
+
+    @Override
+    public double getP99Micros() {
+        return snapshot().getPercentile(0.99);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        totalMicros.reset();
+        maxMicros.reset();
+    }
+}
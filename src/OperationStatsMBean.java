@@ -0,0 +1,14 @@
+// JMX view of one OperationStats; times are in microseconds.
+public interface OperationStatsMBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    long getMaxMicros();
+
+    void reset();
+}
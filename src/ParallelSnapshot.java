@@ -0,0 +1,232 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Snapshot writes and line-based snapshot reads spread over the common pool, so a
+// multi-million task snapshot isn't encoded or parsed one row at a time on one thread.
+// write() encodes the tasks in chunks in parallel and writes each chunk at its offset
+// with a positioned FileChannel write as soon as the chunks before it are sized.
+// readLines() cuts the file at line breaks and parses the pieces in parallel, handing
+// tasks to the sink in file order. Only a few chunks are in flight at a time, so memory
+// stays bounded whatever the snapshot size.
+public class ParallelSnapshot {
+    private static final int CHUNK_TASKS = 1 << 14;
+    private static final int CHUNK_BYTES = 1 << 22;
+
+    // Serialises a run of tasks. Called on pool threads, several runs at once.
+    public interface ChunkEncoder {
+        void encode(List<Task> tasks, ByteArrayOutputStream out) throws IOException;
+    }
+
+    // Turns one line into a task, or null for a line that isn't one. Called on pool
+    // threads, several at once.
+    public interface LineParser {
+        Task parse(String line);
+    }
+
+    // Writes header then every task to path and forces it to disk.
+    public static void write(Path path, byte[] header, List<Task> tasks, ChunkEncoder encoder) throws IOException {
+        int maxInFlight = ForkJoinPool.getCommonPoolParallelism() + 2;
+        ArrayDeque<CompletableFuture<ByteBuffer>> encoding = new ArrayDeque<>();
+        ArrayDeque<CompletableFuture<Void>> writing = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            try {
+                writeFully(channel, ByteBuffer.wrap(header), 0);
+                long position = header.length;
+                for (int from = 0; from < tasks.size(); from += CHUNK_TASKS) {
+                    List<Task> chunk = tasks.subList(from, Math.min(tasks.size(), from + CHUNK_TASKS));
+                    encoding.add(CompletableFuture.supplyAsync(() -> encode(chunk, encoder), ForkJoinPool.commonPool()));
+                    while (encoding.size() >= maxInFlight) {
+                        position = writeNext(channel, encoding, writing, position, maxInFlight);
+                    }
+                }
+                while (!encoding.isEmpty()) {
+                    position = writeNext(channel, encoding, writing, position, maxInFlight);
+                }
+                while (!writing.isEmpty()) {
+                    await(writing.poll());
+                }
+                channel.force(true);
+            } finally {
+                // Nothing may still be writing once the channel closes.
+                for (CompletableFuture<ByteBuffer> f : encoding) {
+                    f.cancel(false);
+                }
+                for (CompletableFuture<Void> f : writing) {
+                    try {
+                        f.join();
+                    } catch (RuntimeException ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    // Hands the oldest encoded chunk to the pool to be written at position; returns where
+    // the next chunk starts.
+    private static long writeNext(FileChannel channel, ArrayDeque<CompletableFuture<ByteBuffer>> encoding,
+            ArrayDeque<CompletableFuture<Void>> writing, long position, int maxInFlight) throws IOException {
+        ByteBuffer bytes = await(encoding.poll());
+        int length = bytes.remaining();
+        writing.add(CompletableFuture.runAsync(() -> {
+            try {
+                writeFully(channel, bytes, position);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ForkJoinPool.commonPool()));
+        while (writing.size() >= maxInFlight) {
+            await(writing.poll());
+        }
+        return position + length;
+    }
+
+    // Written straight from the stream's own array, without the copy toByteArray makes.
+    private static class Encoded extends ByteArrayOutputStream {
+        Encoded(int size) {
+            super(size);
+        }
+
+        ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    private static ByteBuffer encode(List<Task> chunk, ChunkEncoder encoder) {
+        Encoded out = new Encoded(chunk.size() * 96);
+        try {
+            encoder.encode(chunk, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.contents();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+
+    // Lines may end in \n or \r\n; empty lines are skipped. progress gets the percentage
+    // of the file handed to the sink after each chunk.
+    public static void readLines(Path path, LineParser parser, Consumer<Task> sink, IntConsumer progress)
+            throws IOException {
+        int maxInFlight = ForkJoinPool.getCommonPoolParallelism() + 2;
+        ArrayDeque<CompletableFuture<List<Task>>> parsing = new ArrayDeque<>();
+        // Where each chunk in parsing ends in the file.
+        ArrayDeque<Long> ends = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = Math.max(1, channel.size());
+            long read = 0;
+            byte[] buf = new byte[CHUNK_BYTES];
+            int filled = 0;
+            while (true) {
+                int n = channel.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+                if (n < 0) {
+                    break;
+                }
+                filled += n;
+                if (filled < buf.length) {
+                    continue;
+                }
+                int end = lastLineBreak(buf, filled);
+                if (end < 0) {
+                    // One line longer than the buffer: grow it and keep reading.
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    continue;
+                }
+                byte[] piece = buf;
+                parsing.add(CompletableFuture.supplyAsync(() -> parse(piece, end + 1, parser), ForkJoinPool.commonPool()));
+                read += end + 1;
+                ends.add(read);
+                buf = new byte[Math.max(CHUNK_BYTES, filled - end - 1)];
+                filled -= end + 1;
+                System.arraycopy(piece, end + 1, buf, 0, filled);
+                while (parsing.size() >= maxInFlight) {
+                    apply(parsing.poll(), sink);
+                    progress.accept((int) (ends.poll() * 100 / size));
+                }
+            }
+            if (filled > 0) {
+                byte[] piece = buf;
+                int length = filled;
+                parsing.add(CompletableFuture.supplyAsync(() -> parse(piece, length, parser), ForkJoinPool.commonPool()));
+                ends.add(read + length);
+            }
+            while (!parsing.isEmpty()) {
+                apply(parsing.poll(), sink);
+                progress.accept((int) (ends.poll() * 100 / size));
+            }
+        } finally {
+            for (CompletableFuture<List<Task>> f : parsing) {
+                f.cancel(false);
+            }
+        }
+    }
+
+    // UTF-8 never uses the newline byte inside a multi-byte character, so the bytes can
+    // be cut at any \n.
+    private static int lastLineBreak(byte[] buf, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buf[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Task> parse(byte[] bytes, int length, LineParser parser) {
+        List<Task> tasks = new ArrayList<>(length / 64);
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && bytes[end] != '\n') {
+                end++;
+            }
+            int lineEnd = end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+            if (lineEnd > start) {
+                Task t = parser.parse(new String(bytes, start, lineEnd - start, StandardCharsets.UTF_8));
+                if (t != null) {
+                    tasks.add(t);
+                }
+            }
+            start = end + 1;
+        }
+        return tasks;
+    }
+
+    private static void apply(CompletableFuture<List<Task>> parsed, Consumer<Task> sink) throws IOException {
+        for (Task t : await(parsed)) {
+            sink.accept(t);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Snapshot interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        }
+    }
+}
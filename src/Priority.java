@@ -0,0 +1,53 @@
+// A task's priority. The ordinal is the code stored in tasks.dat and the slot of the
+// status/priority buckets, so the order must not change. The names are what tasks.txt,
+// the journal and import files hold.
+public enum Priority {
+    HIGH("[HIGH]"),
+    MEDIUM("[MED]"),
+    LOW("[LOW]");
+
+    private static final Priority[] VALUES = values();
+
+    private final String tag;
+
+    Priority(String tag) {
+        this.tag = tag;
+    }
+
+    // How a task row shows it.
+    public String getTag() {
+        return tag;
+    }
+
+    public static Priority ofCode(int code) {
+        return code >= 0 && code < VALUES.length ? VALUES[code] : MEDIUM;
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    // Reads a stored or typed name in any case. Anything else, including older files'
+    // free-form values, becomes MEDIUM, the GUI default.
+    public static Priority parse(String name) {
+        if (name == null) {
+            return MEDIUM;
+        }
+        switch (name) {
+            case "HIGH":
+                return HIGH;
+            case "MEDIUM":
+                return MEDIUM;
+            case "LOW":
+                return LOW;
+            default:
+                String upper = name.trim().toUpperCase();
+                for (Priority p : VALUES) {
+                    if (p.name().equals(upper) || p.tag.equals("[" + upper + "]")) {
+                        return p;
+                    }
+                }
+                return MEDIUM;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// How often a task comes back. Completing a recurring task adds its next occurrence.
+// Stored by name in text and by ordinal in tasks.dat, so new constants go at the end.
+public enum Recurrence {
+    NONE,
+    DAILY,
+    WEEKDAYS,
+    WEEKLY,
+    MONTHLY,
+    YEARLY;
+
+    private static final Recurrence[] VALUES = values();
+
+    // The occurrence after the given one in the series that started at first. Monthly and
+    // yearly ones are counted from first rather than from date, so month-end dates stay as
+    // close as they can without drifting: Jan 31 is followed by Feb 28 or 29, then Mar 31.
+    public LocalDateTime next(LocalDateTime first, LocalDateTime date) {
+        if (countsFromFirst()) {
+            ChronoUnit unit = this == MONTHLY ? ChronoUnit.MONTHS : ChronoUnit.YEARS;
+            long k = Math.max(1, unit.between(first, date));
+            LocalDateTime next = first.plus(k, unit);
+            while (!next.isAfter(date)) {
+                next = first.plus(++k, unit);
+            }
+            return next;
+        }
+        switch (this) {
+            case DAILY:
+                return date.plusDays(1);
+            case WEEKDAYS:
+                LocalDateTime next = date.plusDays(1);
+                while (next.getDayOfWeek() == DayOfWeek.SATURDAY || next.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                    next = next.plusDays(1);
+                }
+                return next;
+            case WEEKLY:
+                return date.plusWeeks(1);
+            case MONTHLY:
+                return date.plusMonths(1);
+            case YEARLY:
+                return date.plusYears(1);
+            default:
+                return null;
+        }
+    }
+
+    boolean countsFromFirst() {
+        return this == MONTHLY || this == YEARLY;
+    }
+
+    public static Recurrence ofCode(int code) {
+        return code >= 0 && code < VALUES.length ? VALUES[code] : NONE;
+    }
+
+    public static Recurrence parse(String name) {
+        if (name == null || name.isEmpty()) {
+            return NONE;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.time.LocalDateTime;
+
+// A reminder time or due date a pending task has reached.
+public class Reminder {
+    public enum Kind { REMINDER, OVERDUE }
+
+    private final Kind kind;
+    private final Task task;
+    private final LocalDateTime time;
+
+    public Reminder(Kind kind, Task task, LocalDateTime time) {
+        this.kind = kind;
+        this.task = task;
+        this.time = time;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    // The reminder time or due date that was reached.
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + task.getId();
+    }
+}
@@ -0,0 +1,6 @@
+import java.util.List;
+
+// Receives the reminders that came due together, at most about once a second.
+public interface ReminderListener {
+    void remindersDue(List<Reminder> reminders);
+}
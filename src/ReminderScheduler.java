@@ -0,0 +1,187 @@
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Reminder times and due dates of pending tasks, kept on one TimingWheel with one-second
+// ticks rather than a timer per task, so hundreds of thousands of them cost a few small
+// objects each and scheduling or cancelling one is O(1). A daemon thread, started with
+// the first timer, advances the wheel once a second and hands whatever fired to the
+// sink. Overdue tasks are remembered as their due dates pass, so listing or counting
+// them never scans the tasks.
+//
+// TaskManager registers it as its first listener. Every task an event touches goes
+// through update(); a task whose schedule object is unchanged keeps its timers, so
+// editing an overdue task doesn't fire again.
+public class ReminderScheduler implements TaskListener {
+    // The timers of one task, for the schedule they were made from.
+    private static class Timers {
+        final Task task;
+        final TaskSchedule schedule;
+        TimingWheel.Timer<Reminder> remind;
+        TimingWheel.Timer<Reminder> due;
+
+        Timers(Task task, TaskSchedule schedule) {
+            this.task = task;
+            this.schedule = schedule;
+        }
+    }
+
+    private final Consumer<List<Reminder>> sink;
+    private final TimingWheel<Reminder> wheel = new TimingWheel<>(toTick(LocalDateTime.now()));
+    private final Map<Integer, Timers> byId = new HashMap<>();
+    private final Map<Integer, Task> overdue = new LinkedHashMap<>();
+    private ScheduledExecutorService ticker;
+    private boolean closed;
+
+    public ReminderScheduler(Consumer<List<Reminder>> sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public synchronized void tasksChanged(List<TaskEvent> events) {
+        for (TaskEvent e : events) {
+            switch (e.getType()) {
+                case REMOVED:
+                    remove(e.getId());
+                    break;
+                case CLEARED:
+                    if (!byId.isEmpty()) {
+                        for (int id : e.getClearedIds()) {
+                            remove(id);
+                        }
+                    }
+                    break;
+                case APPENDED:
+                    for (Task t : e.getAppended()) {
+                        if (t.getSchedule() != null || !byId.isEmpty()) {
+                            update(t);
+                        }
+                    }
+                    break;
+                default:
+                    if (e.getTask().getSchedule() != null || !byId.isEmpty()) {
+                        update(e.getTask());
+                    }
+            }
+        }
+    }
+
+    // Brings t's timers in line with its schedule and status.
+    public synchronized void update(Task t) {
+        TaskSchedule s = t.getSchedule();
+        Timers current = byId.get(t.getId());
+        if (current != null && current.task == t && current.schedule == s && !t.isCompleted()) {
+            return;
+        }
+        remove(t.getId());
+        if (s == null || t.isCompleted() || (s.getDue() == null && s.getRemindAt() == null)) {
+            return;
+        }
+        Timers timers = new Timers(t, s);
+        LocalDateTime now = LocalDateTime.now();
+        // A reminder missed while the app was closed is still worth showing, unless the
+        // task is overdue by now and will be reported as that instead.
+        LocalDateTime remindAt = s.getRemindAt();
+        if (remindAt != null && (remindAt.isAfter(now) || !s.isOverdue(now))) {
+            timers.remind = wheel.schedule(toTick(remindAt), new Reminder(Reminder.Kind.REMINDER, t, remindAt));
+        }
+        if (s.getDue() != null) {
+            timers.due = wheel.schedule(toTick(s.getDue()), new Reminder(Reminder.Kind.OVERDUE, t, s.getDue()));
+        }
+        byId.put(t.getId(), timers);
+        start();
+    }
+
+    public synchronized void remove(int id) {
+        if (byId.isEmpty() && overdue.isEmpty()) {
+            return;
+        }
+        Timers timers = byId.remove(id);
+        if (timers != null) {
+            if (timers.remind != null) {
+                wheel.cancel(timers.remind);
+            }
+            if (timers.due != null) {
+                wheel.cancel(timers.due);
+            }
+        }
+        overdue.remove(id);
+    }
+
+    // Pending tasks whose due date has passed, in id order.
+    public synchronized List<Task> getOverdueTasks() {
+        List<Task> tasks = new ArrayList<>(overdue.values());
+        tasks.sort(Comparator.comparingInt(Task::getId));
+        return tasks;
+    }
+
+    public synchronized int getOverdueCount() {
+        return overdue.size();
+    }
+
+    public synchronized int getPendingCount() {
+        return wheel.size();
+    }
+
+    // Fires everything due up to the given tick; the ticker thread calls it with now.
+    synchronized List<Reminder> advance(long tick) {
+        List<Reminder> fired = new ArrayList<>();
+        wheel.advanceTo(tick, timer -> {
+            Reminder r = timer.getPayload();
+            Timers timers = byId.get(r.getTask().getId());
+            if (r.getKind() == Reminder.Kind.OVERDUE) {
+                timers.due = null;
+                overdue.put(r.getTask().getId(), r.getTask());
+            } else {
+                timers.remind = null;
+            }
+            fired.add(r);
+        });
+        return fired;
+    }
+
+    private void tick() {
+        try {
+            List<Reminder> fired = advance(toTick(LocalDateTime.now()));
+            if (!fired.isEmpty()) {
+                sink.accept(fired);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Error delivering reminders: " + e.getMessage());
+        }
+    }
+
+    private void start() {
+        if (ticker != null || closed) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "task-reminders");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, 0, 1, TimeUnit.SECONDS);
+    }
+
+    public synchronized void close() {
+        closed = true;
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    // Epoch seconds of a local date-time, in the zone the dates were entered in.
+    static long toTick(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
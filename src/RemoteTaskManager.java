@@ -0,0 +1,269 @@
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// A TaskManager whose tasks live in a TaskServer. Reads are served from a local replica,
+// kept current by the changes the server pushes; mutations are sent to the server and
+// return once it has answered, by which time the replica already holds their result.
+// Analytics and the archive are asked of the server, since the replica has neither the
+// archived tasks nor their history. Undo is not offered: the server's tasks are shared,
+// and undoing another client's change would be surprising.
+//
+// A lost connection is reported on stdout; mutations then do nothing and return false,
+// null or empty, and the replica keeps the last tasks it saw.
+public class RemoteTaskManager extends TaskManager {
+    private final TaskClient client;
+    // Held while the initial snapshot is applied, so pushes that arrive meanwhile wait.
+    private final Object syncLock = new Object();
+    private final OperationStats applyTime = getMetrics().operation("replica.apply");
+
+    public RemoteTaskManager(String host, int port) throws IOException {
+        super(Integer.getInteger("tasktracker.shards", 1));
+        client = new TaskClient(host, port);
+        client.setPushHandler(this::applyPushes);
+        synchronized (syncLock) {
+            TaskClient.Reply snapshot = client.call("SYNC");
+            List<TaskHistory.Change> changes = new ArrayList<>(snapshot.rows.size());
+            for (String row : snapshot.rows) {
+                Task t = TextTaskFormat.parseRow(row);
+                changes.add(new TaskHistory.Change(t.getId(), null, t));
+            }
+            applyChanges(changes);
+        }
+    }
+
+    private void applyPushes(List<String> pushes) {
+        long start = System.nanoTime();
+        List<TaskHistory.Change> changes = new ArrayList<>(pushes.size());
+        for (String push : pushes) {
+            int space = push.indexOf(' ');
+            String type = push.substring(0, space);
+            String rest = push.substring(space + 1);
+            if (type.equals("REMOVED") || type.equals("CLEARED")) {
+                for (int id : TaskServer.parseIds(rest)) {
+                    changes.add(new TaskHistory.Change(id, null, null));
+                }
+            } else {
+                Task t = TextTaskFormat.parseRow(rest);
+                changes.add(new TaskHistory.Change(t.getId(), null, t));
+            }
+        }
+        synchronized (syncLock) {
+            applyChanges(changes);
+        }
+        applyTime.record(start);
+        getMetrics().count("replica.changes", changes.size());
+    }
+
+    // The server's value, or null if it couldn't be reached.
+    private TaskClient.Reply call(String command) {
+        try {
+            return client.call(command);
+        } catch (IOException e) {
+            System.out.println("Error calling task server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean callBoolean(String command) {
+        TaskClient.Reply reply = call(command);
+        return reply != null && Boolean.parseBoolean(reply.value);
+    }
+
+    private int callInt(String command) {
+        TaskClient.Reply reply = call(command);
+        return reply == null ? 0 : Integer.parseInt(reply.value);
+    }
+
+    // The replica's copy of a task the server returned.
+    private Task local(String row) {
+        Task t = TextTaskFormat.parseRow(row);
+        Task replica = getTaskById(t.getId());
+        return replica != null ? replica : t;
+    }
+
+    private static String joinIds(Collection<Integer> ids) {
+        StringBuilder out = new StringBuilder();
+        for (int id : ids) {
+            out.append(out.length() == 0 ? "" : ",").append(id);
+        }
+        return out.toString();
+    }
+
+    private static List<Task> parseRows(List<String> rows) {
+        List<Task> tasks = new ArrayList<>(rows.size());
+        for (String row : rows) {
+            tasks.add(TextTaskFormat.parseRow(row));
+        }
+        return tasks;
+    }
+
+    @Override
+    public Task addTask(String desc, Priority priority, TaskSchedule schedule) {
+        TaskClient.Reply reply = call("ADD " + priority.name() + " " + singleLine(desc));
+        if (reply == null) {
+            return null;
+        }
+        Task t = local(reply.value);
+        if (schedule != null && setSchedule(t.getId(), schedule)) {
+            t = getTaskById(t.getId());
+        }
+        return t;
+    }
+
+    // Pipelined: every row is sent before any reply is awaited, so the server takes
+    // them in a few large batches rather than one round trip each.
+    @Override
+    public List<Task> addAll(Collection<? extends Task> templates) {
+        List<CompletableFuture<TaskClient.Reply>> replies = new ArrayList<>(templates.size());
+        for (Task template : templates) {
+            replies.add(client.send("IMPORT " + singleLine(TextTaskFormat.toRow(template))));
+        }
+        client.flush();
+        List<Task> added = new ArrayList<>(replies.size());
+        try {
+            for (CompletableFuture<TaskClient.Reply> reply : replies) {
+                added.add(local(TaskClient.await(reply).value));
+            }
+        } catch (IOException e) {
+            System.out.println("Error calling task server: " + e.getMessage());
+        }
+        return added;
+    }
+
+    @Override
+    public boolean deleteTaskById(int id) {
+        return callBoolean("DELETE " + id);
+    }
+
+    @Override
+    public boolean markDoneById(int id) {
+        return callBoolean("DONE " + id);
+    }
+
+    @Override
+    public boolean editTaskById(int id, String newDescription) {
+        return callBoolean("EDIT " + id + " " + singleLine(newDescription));
+    }
+
+    @Override
+    public boolean updatePriorityById(int id, Priority priority) {
+        return callBoolean("PRIORITY " + id + " " + priority.name());
+    }
+
+    @Override
+    public boolean setSchedule(int id, TaskSchedule schedule) {
+        return callBoolean("SCHEDULE " + id + " " + (schedule != null ? schedule.encode() : ""));
+    }
+
+    @Override
+    public int markDoneAll(Collection<Integer> ids) {
+        return callInt("DONEALL " + joinIds(ids));
+    }
+
+    @Override
+    public int updatePriorityAll(Collection<Integer> ids, Priority priority) {
+        return callInt("PRIORITYALL " + priority.name() + " " + joinIds(ids));
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        return callInt("DELETEALL " + joinIds(ids));
+    }
+
+    @Override
+    public void deleteCompletedTasks() {
+        call("CLEAR");
+    }
+
+    @Override
+    public int archiveCompleted(int olderThanDays) {
+        return callInt("ARCHIVE " + olderThanDays);
+    }
+
+    @Override
+    public int getArchivedCount() {
+        return callInt("ARCHIVED");
+    }
+
+    @Override
+    public List<Task> searchArchive(String query, int limit) {
+        TaskClient.Reply reply = call("ARCHIVESEARCH " + limit + " " + query);
+        return reply == null ? new ArrayList<>() : parseRows(reply.rows);
+    }
+
+    @Override
+    public List<Task> restoreFromArchive(Collection<Integer> ids) {
+        TaskClient.Reply reply = call("RESTORE " + joinIds(ids));
+        List<Task> restored = new ArrayList<>();
+        if (reply != null) {
+            for (String row : reply.rows) {
+                restored.add(local(row));
+            }
+        }
+        return restored;
+    }
+
+    @Override
+    public long[] getCompletionsPerPeriod(LocalDate from, LocalDate to, int bucketDays) {
+        return periods("COMPLETED", from, to, bucketDays);
+    }
+
+    @Override
+    public long[] getCreationsPerPeriod(LocalDate from, LocalDate to, int bucketDays) {
+        return periods("CREATED", from, to, bucketDays);
+    }
+
+    @Override
+    public long[] getBacklogPerPeriod(LocalDate from, LocalDate to, int bucketDays) {
+        return periods("BACKLOG", from, to, bucketDays);
+    }
+
+    private long[] periods(String kind, LocalDate from, LocalDate to, int bucketDays) {
+        TaskClient.Reply reply = call("PERIODS " + kind + " " + from + " " + to + " " + bucketDays);
+        if (reply == null || reply.value.isEmpty()) {
+            return new long[0];
+        }
+        String[] parts = reply.value.split(",");
+        long[] counts = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            counts[i] = Long.parseLong(parts[i]);
+        }
+        return counts;
+    }
+
+    @Override
+    public LatencyHistogram getCompletionLatency(LocalDate from, LocalDate to, Priority priority) {
+        TaskClient.Reply reply = call("LATENCY " + from + " " + to + " " + (priority == null ? "ALL" : priority.name()));
+        return reply == null ? new LatencyHistogram() : LatencyHistogram.decode(reply.value);
+    }
+
+    @Override
+    public boolean undo() {
+        return false;
+    }
+
+    @Override
+    public boolean redo() {
+        return false;
+    }
+
+    @Override
+    public String getUndoLabel() {
+        return null;
+    }
+
+    @Override
+    public String getRedoLabel() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        super.close();
+    }
+}
@@ -1,23 +1,39 @@
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 public class Task {
-    private int id;
-    private String description;
-    private boolean completed;
-    private String priority;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+    private static final DateTimeFormatter DUE_FORMAT = DateTimeFormatter.ofPattern("MMM dd HH:mm");
+
+    private final int id;
+    // Volatile so readers holding no lock, such as the search worker, see edits made
+    // under a TaskManager shard lock.
+    private volatile String description;
+    private volatile boolean completed;
+    private volatile Priority priority;
     private LocalDateTime createdDate;
-    private LocalDateTime completedDate;
+    private volatile LocalDateTime completedDate;
+    // Null for the many tasks with no due date, reminder or recurrence.
+    private volatile TaskSchedule schedule;
+    // Set while the description is still encoded in a mapped snapshot.
+    private volatile LazyDescriptions descriptionSource;
+    private int descriptionOffset;
+    private int descriptionLength;
+    // Set while the status, priority, dates and schedule live in a row of a shard's
+    // TaskStore rather than in the fields above.
+    private volatile TaskStore store;
+    private int row;
 
     public Task(int id, String description) {
         this.id = id;
         this.description = description;
         this.completed = false;
-        this.priority = "MEDIUM";
+        this.priority = Priority.MEDIUM;
         this.createdDate = LocalDateTime.now();
     }
 
-    public Task(int id, String description, boolean completed, String priority,
+    public Task(int id, String description, boolean completed, Priority priority,
             LocalDateTime createdDate, LocalDateTime completedDate) {
         this.id = id;
         this.description = description;
@@ -27,67 +43,198 @@ public class Task {
         this.completedDate = completedDate;
     }
 
+    public Task(int id, LazyDescriptions descriptionSource, int descriptionOffset, int descriptionLength,
+            boolean completed, Priority priority, LocalDateTime createdDate, LocalDateTime completedDate) {
+        this(id, null, completed, priority, createdDate, completedDate);
+        this.descriptionSource = descriptionSource;
+        this.descriptionOffset = descriptionOffset;
+        this.descriptionLength = descriptionLength;
+    }
+
+    // A detached copy for snapshots; a lazy description stays lazy.
+    public Task copy() {
+        Task t = new Task(id, description, isCompleted(), getPriority(), getCreatedDate(), getCompletedDate());
+        t.schedule = getSchedule();
+        t.descriptionSource = descriptionSource;
+        t.descriptionOffset = descriptionOffset;
+        t.descriptionLength = descriptionLength;
+        return t;
+    }
+
     public int getId() {
         return id;
     }
 
     public String getDescription() {
+        if (descriptionSource != null) {
+            return descriptionSource.get(descriptionOffset, descriptionLength);
+        }
         return description;
     }
 
+    // The description without keeping a lazy one decoded, for reads of every task such as
+    // indexing, which would otherwise churn the cache of shown descriptions.
+    String peekDescription() {
+        LazyDescriptions source = descriptionSource;
+        return source != null ? source.peek(descriptionOffset, descriptionLength) : description;
+    }
+
+    // False while the description has not been decoded from the mapped snapshot.
+    boolean isDescriptionDecoded() {
+        LazyDescriptions source = descriptionSource;
+        return source == null || source.isCached(descriptionOffset);
+    }
+
+    public byte[] getDescriptionBytes() {
+        if (descriptionSource != null) {
+            return descriptionSource.bytes(descriptionOffset, descriptionLength);
+        }
+        return description.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Each getter of a stored field reads the row, then checks the task is still in the
+    // store: if it was detached meanwhile the row may belong to another task by now, and
+    // the fields hold this one's values again.
     public boolean isCompleted() {
+        TaskStore s = store;
+        if (s != null) {
+            boolean done = s.isCompleted(row);
+            if (store == s) {
+                return done;
+            }
+        }
         return completed;
     }
 
-    public String getPriority() {
+    public Priority getPriority() {
+        TaskStore s = store;
+        if (s != null) {
+            Priority p = s.priority(row);
+            if (store == s) {
+                return p;
+            }
+        }
         return priority;
     }
 
     public LocalDateTime getCreatedDate() {
+        TaskStore s = store;
+        if (s != null) {
+            LocalDateTime date = s.createdDate(row);
+            if (store == s) {
+                return date;
+            }
+        }
         return createdDate;
     }
 
     public LocalDateTime getCompletedDate() {
+        TaskStore s = store;
+        if (s != null) {
+            LocalDateTime date = s.completedDate(row);
+            if (store == s) {
+                return date;
+            }
+        }
         return completedDate;
     }
 
+    public TaskSchedule getSchedule() {
+        TaskStore s = store;
+        if (s != null) {
+            TaskSchedule stored = s.schedule(row);
+            if (store == s) {
+                return stored;
+            }
+        }
+        return schedule;
+    }
+
+    // Setters run under the shard's write lock, which also covers attach and detach.
+    public void setSchedule(TaskSchedule schedule) {
+        TaskStore s = store;
+        if (s != null) {
+            s.setSchedule(row, schedule);
+        } else {
+            this.schedule = schedule;
+        }
+    }
+
     public void markCompleted() {
-        this.completed = true;
-        this.completedDate = LocalDateTime.now();
+        markCompleted(LocalDateTime.now());
     }
 
-    public void setId(int id) {
-        this.id = id;
+    public void markCompleted(LocalDateTime completedDate) {
+        TaskStore s = store;
+        if (s != null) {
+            s.complete(row, completedDate);
+        } else {
+            this.completed = true;
+            this.completedDate = completedDate;
+        }
     }
 
-    public void setPriority(String priority) {
-        this.priority = priority;
+    public void setPriority(Priority priority) {
+        TaskStore s = store;
+        if (s != null) {
+            s.setPriority(row, priority);
+        } else {
+            this.priority = priority;
+        }
+    }
+
+    // Moves the status, priority, dates and schedule into a new row of store, dropping
+    // the task's own date objects. Only for a task no other thread can see yet.
+    void attach(TaskStore store) {
+        row = store.add(completed, priority, createdDate, completedDate, schedule);
+        this.store = store;
+        priority = null;
+        createdDate = null;
+        completedDate = null;
+        schedule = null;
+    }
+
+    // Moves them back into the task's own fields and frees the row.
+    void detach() {
+        TaskStore s = store;
+        if (s == null) {
+            return;
+        }
+        completed = s.isCompleted(row);
+        priority = s.priority(row);
+        createdDate = s.createdDate(row);
+        completedDate = s.completedDate(row);
+        schedule = s.schedule(row);
+        store = null;
+        s.free(row);
     }
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionSource = null;
+    }
+
+    // Rough heap held by this task, for memory budgets. A lazy description lives in the
+    // mapped file and costs nothing until read.
+    public int estimatedBytes() {
+        String d = description;
+        return 120 + (d != null && descriptionSource == null ? 2 * d.length() : 0) + (getSchedule() != null ? 80 : 0);
     }
 
     public String getFormattedDate() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
-        return createdDate.format(formatter);
+        return DATE_FORMAT.format(getCreatedDate());
     }
 
     @Override
     public String toString() {
-        String status = completed ? "[DONE]" : "[    ]";
-        String prioritySymbol = "";
-        switch (priority) {
-            case "HIGH":
-                prioritySymbol = "[HIGH]";
-                break;
-            case "MEDIUM":
-                prioritySymbol = "[MED]";
-                break;
-            case "LOW":
-                prioritySymbol = "[LOW]";
-                break;
+        TaskSchedule s = getSchedule();
+        String text = (isCompleted() ? "[DONE] " : "[    ] ") + getId() + ". " + getDescription() + " "
+                + getPriority().getTag();
+        if (s == null || (s.getDue() == null && !s.isRecurring())) {
+            return text;
         }
-        return status + " " + id + ". " + description + " " + prioritySymbol;
+        return text + " (" + (s.getDue() != null ? "due " + DUE_FORMAT.format(s.getDue()) : "")
+                + (s.getDue() != null && s.isRecurring() ? ", " : "")
+                + (s.isRecurring() ? s.getRecurrence().name().toLowerCase() : "") + ")";
     }
 }
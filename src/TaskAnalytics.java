@@ -0,0 +1,169 @@
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Per-day aggregates over one shard's tasks: how many were created and completed each
+// day, and completion latency histograms by priority for the tasks completed that day.
+// TaskShard updates it alongside the status/priority buckets, so queries over years of
+// history only walk the days in range. The static query methods merge several shards'
+// aggregates; callers hold the shards' read locks.
+public class TaskAnalytics {
+    private final TreeMap<Long, Day> days = new TreeMap<>();
+
+    private static class Day {
+        int created;
+        int completed;
+        // Indexed by priority slot, created on first use.
+        final LatencyHistogram[] latency = new LatencyHistogram[Priority.count()];
+
+        boolean isEmpty() {
+            return created == 0 && completed == 0;
+        }
+    }
+
+    public void add(Task t) {
+        day(dayOf(t.getCreatedDate())).created++;
+        if (t.isCompleted()) {
+            addCompleted(day(dayOf(completedAt(t))), t);
+        }
+    }
+
+    // Bulk versions for many tasks at once: each day they touch is looked up in the tree
+    // once rather than once per task, and emptied days are dropped at the end.
+    public void addAll(Collection<Task> added) {
+        Map<Long, Day> touched = new HashMap<>();
+        for (Task t : added) {
+            touched.computeIfAbsent(dayOf(t.getCreatedDate()), this::day).created++;
+            if (t.isCompleted()) {
+                addCompleted(touched.computeIfAbsent(dayOf(completedAt(t)), this::day), t);
+            }
+        }
+    }
+
+    public void removeAll(Collection<Task> removed) {
+        Map<Long, Day> touched = new HashMap<>();
+        for (Task t : removed) {
+            touched.computeIfAbsent(dayOf(t.getCreatedDate()), days::get).created--;
+            if (t.isCompleted()) {
+                Day d = touched.computeIfAbsent(dayOf(completedAt(t)), days::get);
+                d.completed--;
+                d.latency[t.getPriority().ordinal()].remove(latencyMinutes(t));
+            }
+        }
+        for (Map.Entry<Long, Day> e : touched.entrySet()) {
+            if (e.getValue().isEmpty()) {
+                days.remove(e.getKey());
+            }
+        }
+    }
+
+    public void remove(Task t) {
+        long createdDay = dayOf(t.getCreatedDate());
+        Day created = days.get(createdDay);
+        created.created--;
+        if (created.isEmpty()) {
+            days.remove(createdDay);
+        }
+        if (t.isCompleted()) {
+            long completedDay = dayOf(completedAt(t));
+            Day d = days.get(completedDay);
+            d.completed--;
+            d.latency[t.getPriority().ordinal()].remove(latencyMinutes(t));
+            if (d.isEmpty()) {
+                days.remove(completedDay);
+            }
+        }
+    }
+
+    // Tasks created (or completed) per period of bucketDays days, the first period
+    // starting on from; the last one may run past to.
+    public static long[] countPerPeriod(List<TaskAnalytics> shards, LocalDate from, LocalDate to,
+            int bucketDays, boolean completed) {
+        long first = from.toEpochDay();
+        long[] counts = new long[periods(from, to, bucketDays)];
+        for (TaskAnalytics a : shards) {
+            for (Map.Entry<Long, Day> e : a.days.subMap(first, true, to.toEpochDay(), true).entrySet()) {
+                counts[(int) ((e.getKey() - first) / bucketDays)] += completed
+                        ? e.getValue().completed : e.getValue().created;
+            }
+        }
+        return counts;
+    }
+
+    // Pending tasks at the end of each period: everything created so far minus
+    // everything completed so far.
+    public static long[] backlogPerPeriod(List<TaskAnalytics> shards, LocalDate from, LocalDate to,
+            int bucketDays) {
+        long first = from.toEpochDay();
+        long[] net = new long[periods(from, to, bucketDays)];
+        long before = 0;
+        for (TaskAnalytics a : shards) {
+            for (Day d : a.days.headMap(first, false).values()) {
+                before += d.created - d.completed;
+            }
+            for (Map.Entry<Long, Day> e : a.days.subMap(first, true, to.toEpochDay(), true).entrySet()) {
+                net[(int) ((e.getKey() - first) / bucketDays)] += e.getValue().created - e.getValue().completed;
+            }
+        }
+        long running = before;
+        for (int i = 0; i < net.length; i++) {
+            running += net[i];
+            net[i] = running;
+        }
+        return net;
+    }
+
+    // Latencies of the tasks completed between from and to; a null priority means all.
+    public static LatencyHistogram latency(List<TaskAnalytics> shards, LocalDate from, LocalDate to,
+            Priority priority) {
+        LatencyHistogram merged = new LatencyHistogram();
+        int only = priority == null ? -1 : priority.ordinal();
+        for (TaskAnalytics a : shards) {
+            for (Day d : a.days.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()) {
+                for (int slot = 0; slot < d.latency.length; slot++) {
+                    if (d.latency[slot] != null && (only < 0 || only == slot)) {
+                        merged.addAll(d.latency[slot]);
+                    }
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static void addCompleted(Day d, Task t) {
+        d.completed++;
+        int slot = t.getPriority().ordinal();
+        if (d.latency[slot] == null) {
+            d.latency[slot] = new LatencyHistogram();
+        }
+        d.latency[slot].add(latencyMinutes(t));
+    }
+
+    private Day day(long epochDay) {
+        return days.computeIfAbsent(epochDay, k -> new Day());
+    }
+
+    private static int periods(LocalDate from, LocalDate to, int bucketDays) {
+        long span = to.toEpochDay() - from.toEpochDay() + 1;
+        return (int) Math.max(0, (span + bucketDays - 1) / bucketDays);
+    }
+
+    private static long dayOf(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay();
+    }
+
+    // Same rule as TaskOrder.COMPLETED: a completed task without a date counts as done
+    // when it was created.
+    private static LocalDateTime completedAt(Task t) {
+        return t.getCompletedDate() != null ? t.getCompletedDate() : t.getCreatedDate();
+    }
+
+    private static long latencyMinutes(Task t) {
+        return Duration.between(t.getCreatedDate(), completedAt(t)).toMinutes();
+    }
+}
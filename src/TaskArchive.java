@@ -0,0 +1,448 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Cold storage for completed tasks that no longer need to sit in memory. Archived tasks
+// are written as tasks.txt rows in gzip blocks of up to BLOCK_TASKS tasks, appended to
+// segment files that are never rewritten. The index file records, per task, the block it
+// lives in plus its priority and dates, so the archive can answer analytics and id
+// lookups without decompressing anything; restoring a task appends a tombstone. A
+// segment whose tasks have all been restored is deleted, and the index is rewritten on
+// load once most of it is tombstoned. Methods other than search are synchronized.
+public class TaskArchive {
+    private static final long SEGMENT_LIMIT = 8L << 20;
+    private static final int BLOCK_TASKS = 256;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".gz";
+
+    private final Path dir;
+    private final Path indexPath;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    // Archived tasks still live in each segment.
+    private final TreeMap<Integer, Integer> liveBySegment = new TreeMap<>();
+    private final TaskAnalytics analytics = new TaskAnalytics();
+    private int segment;
+    private int maxId;
+    private int deadRecords;
+
+    // Where one archived task is, and a description-less copy of it for analytics.
+    private static class Entry {
+        final int segment;
+        final long offset;
+        final int length;
+        final Task stub;
+
+        Entry(int segment, long offset, int length, Task stub) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.stub = stub;
+        }
+
+        boolean sameBlock(Entry other) {
+            return segment == other.segment && offset == other.offset;
+        }
+    }
+
+    // Always empty; for managers that keep nothing on disk.
+    public TaskArchive() {
+        dir = null;
+        indexPath = null;
+    }
+
+    public TaskArchive(String directory) {
+        dir = Paths.get(directory);
+        indexPath = dir.resolve("index");
+    }
+
+    // Reads the index. Only newline-terminated lines count; a torn tail left by a crash
+    // is truncated, and its block, if written, is simply never referenced.
+    public synchronized void load() {
+        entries.clear();
+        liveBySegment.clear();
+        deadRecords = 0;
+        if (dir == null) {
+            return;
+        }
+        segment = lastSegmentOnDisk();
+        byte[] data;
+        try {
+            data = Files.readAllBytes(indexPath);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            System.out.println("Error loading task archive: " + e.getMessage());
+            return;
+        }
+
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n') {
+                String line = new String(data, start, i - start, StandardCharsets.UTF_8);
+                start = i + 1;
+                try {
+                    applyIndexLine(line);
+                } catch (RuntimeException e) {
+                    System.out.println("Skipping bad archive index line: " + e.getMessage());
+                }
+            }
+        }
+        if (start < data.length) {
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+                channel.truncate(start);
+            } catch (IOException e) {
+                System.out.println("Error loading task archive: " + e.getMessage());
+            }
+        }
+
+        for (Map.Entry<Integer, Integer> e : new ArrayList<>(liveBySegment.entrySet())) {
+            if (e.getValue() == 0) {
+                dropSegment(e.getKey());
+            }
+        }
+        if (deadRecords > entries.size()) {
+            rewriteIndex();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean contains(int id) {
+        return entries.containsKey(id);
+    }
+
+    // Highest id ever archived, so new tasks never reuse one that could be restored.
+    public synchronized int maxId() {
+        return maxId;
+    }
+
+    // Per-day aggregates of the archived tasks; callers hold TaskManager's locks.
+    public TaskAnalytics analytics() {
+        return analytics;
+    }
+
+    // Appends the tasks and forces both the segment and the index to disk before
+    // returning, so the caller can then drop them from the hot set.
+    public synchronized void append(List<Task> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(dir);
+        if (segment == 0 || sizeOf(segmentPath(segment)) >= SEGMENT_LIMIT) {
+            segment++;
+        }
+        StringBuilder index = new StringBuilder();
+        List<Entry> added = new ArrayList<>(tasks.size());
+        try (FileChannel out = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long offset = out.size();
+            for (int from = 0; from < tasks.size(); from += BLOCK_TASKS) {
+                List<Task> block = tasks.subList(from, Math.min(tasks.size(), from + BLOCK_TASKS));
+                byte[] compressed = compress(block);
+                ByteBuffer buffer = ByteBuffer.wrap(compressed);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                for (Task t : block) {
+                    Entry e = new Entry(segment, offset, compressed.length, stub(t));
+                    index.append(indexLine(e));
+                    added.add(e);
+                }
+                offset += compressed.length;
+            }
+            out.force(true);
+        }
+        appendIndex(index.toString());
+        for (Entry e : added) {
+            put(e);
+        }
+    }
+
+    // The archived tasks with the given ids, in id order; unknown ids are skipped. Each
+    // block is decompressed once however many of its tasks are wanted.
+    public synchronized List<Task> get(Collection<Integer> ids) throws IOException {
+        Map<String, Entry> blocks = new TreeMap<>();
+        Set<Integer> wanted = new HashSet<>();
+        for (int id : ids) {
+            Entry e = entries.get(id);
+            if (e != null) {
+                blocks.putIfAbsent(blockKey(e), e);
+                wanted.add(id);
+            }
+        }
+        List<Task> found = new ArrayList<>(wanted.size());
+        for (Entry block : blocks.values()) {
+            for (Task t : readBlock(block)) {
+                Entry e = entries.get(t.getId());
+                if (wanted.contains(t.getId()) && e.sameBlock(block)) {
+                    found.add(t);
+                }
+            }
+        }
+        found.sort(Comparator.comparingInt(Task::getId));
+        return found;
+    }
+
+    // Archived tasks whose description contains every word of the query, the last word
+    // matching as a prefix as in TaskSearchIndex, in id order. This decompresses the
+    // archive block by block, so it belongs on a background thread; it takes the archive's
+    // lock only briefly, so archiving and restoring can go on meanwhile.
+    public List<Task> search(String query, int limit) throws IOException {
+        List<String> words = TaskSearchIndex.tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        boolean prefixLast = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        TreeMap<String, Entry> blocks = new TreeMap<>();
+        synchronized (this) {
+            for (Entry e : entries.values()) {
+                blocks.putIfAbsent(blockKey(e), e);
+            }
+        }
+        List<Task> hits = new ArrayList<>();
+        for (Entry block : blocks.values()) {
+            List<Task> tasks;
+            try {
+                tasks = readBlock(block);
+            } catch (NoSuchFileException e) {
+                // Every task of the segment was restored after the block list was taken.
+                continue;
+            }
+            for (Task t : tasks) {
+                if (matches(words, prefixLast, t.getDescription()) && isCurrent(t.getId(), block)) {
+                    hits.add(t);
+                }
+            }
+        }
+        hits.sort(Comparator.comparingInt(Task::getId));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    // Tombstones tasks that are back in the hot set.
+    public synchronized void markRestored(Collection<Integer> ids) throws IOException {
+        StringBuilder index = new StringBuilder();
+        for (int id : ids) {
+            if (entries.containsKey(id)) {
+                index.append("R,").append(id).append('\n');
+            }
+        }
+        if (index.length() == 0) {
+            return;
+        }
+        appendIndex(index.toString());
+        for (int id : ids) {
+            Entry e = entries.remove(id);
+            if (e != null) {
+                release(e);
+                deadRecords += 2;
+                if (liveBySegment.get(e.segment) == 0) {
+                    dropSegment(e.segment);
+                }
+            }
+        }
+    }
+
+    // A block keeps rows of tasks restored and archived again since; only the latest
+    // entry of an id counts.
+    private synchronized boolean isCurrent(int id, Entry block) {
+        Entry e = entries.get(id);
+        return e != null && e.sameBlock(block);
+    }
+
+    private void applyIndexLine(String line) {
+        if (line.startsWith("R,")) {
+            Entry e = entries.remove(Integer.parseInt(line.substring(2)));
+            if (e != null) {
+                release(e);
+                deadRecords += 2;
+            }
+            return;
+        }
+        String[] f = line.split(",", 8);
+        if (f.length < 8 || !f[0].equals("A")) {
+            throw new IllegalArgumentException(line);
+        }
+        int id = Integer.parseInt(f[1]);
+        Task stub = new Task(id, "", true, Priority.parse(f[7]), LocalDateTime.parse(f[5]),
+                f[6].isEmpty() ? null : LocalDateTime.parse(f[6]));
+        Entry e = new Entry(Integer.parseInt(f[2]), Long.parseLong(f[3]), Integer.parseInt(f[4]), stub);
+        Entry replaced = entries.get(id);
+        if (replaced != null) {
+            entries.remove(id);
+            release(replaced);
+            deadRecords++;
+        }
+        put(e);
+        segment = Math.max(segment, e.segment);
+    }
+
+    private void put(Entry e) {
+        entries.put(e.stub.getId(), e);
+        liveBySegment.merge(e.segment, 1, Integer::sum);
+        analytics.add(e.stub);
+        maxId = Math.max(maxId, e.stub.getId());
+    }
+
+    private void release(Entry e) {
+        liveBySegment.merge(e.segment, -1, Integer::sum);
+        analytics.remove(e.stub);
+    }
+
+    // The segment being appended to is kept even when empty.
+    private void dropSegment(int number) {
+        if (number == segment) {
+            return;
+        }
+        liveBySegment.remove(number);
+        try {
+            Files.deleteIfExists(segmentPath(number));
+        } catch (IOException e) {
+            System.out.println("Error cleaning task archive: " + e.getMessage());
+        }
+    }
+
+    private void rewriteIndex() {
+        StringBuilder index = new StringBuilder();
+        List<Entry> live = new ArrayList<>(entries.values());
+        live.sort(Comparator.comparingInt((Entry e) -> e.segment).thenComparingLong(e -> e.offset)
+                .thenComparingInt(e -> e.stub.getId()));
+        for (Entry e : live) {
+            index.append(indexLine(e));
+        }
+        Path tmp = indexPath.resolveSibling("index.tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(index.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            Files.move(tmp, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            TaskJournal.syncDirectory(indexPath);
+            deadRecords = 0;
+        } catch (IOException e) {
+            System.out.println("Error compacting task archive: " + e.getMessage());
+        }
+    }
+
+    private void appendIndex(String lines) throws IOException {
+        try (FileChannel out = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+    }
+
+    private List<Task> readBlock(Entry block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(block.length);
+        try (FileChannel in = FileChannel.open(segmentPath(block.segment), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer, block.offset + buffer.position()) < 0) {
+                    throw new EOFException("Archive segment " + block.segment + " is truncated");
+                }
+            }
+        }
+        List<Task> tasks = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(buffer.array())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Task t = TextTaskFormat.parseRow(line);
+                if (t != null) {
+                    tasks.add(t);
+                }
+            }
+        }
+        return tasks;
+    }
+
+    private static byte[] compress(List<Task> block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer w = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            for (Task t : block) {
+                w.write(TextTaskFormat.toRow(t));
+                w.write('\n');
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean matches(List<String> words, boolean prefixLast, String description) {
+        List<String> have = TaskSearchIndex.tokenize(description);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            boolean found = false;
+            for (String h : have) {
+                if (prefixLast && i == words.size() - 1 ? h.startsWith(word) : h.equals(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Task stub(Task t) {
+        return new Task(t.getId(), "", true, t.getPriority(), t.getCreatedDate(), t.getCompletedDate());
+    }
+
+    // The priority goes last, where older indexes kept free-form values that could
+    // contain commas.
+    private static String indexLine(Entry e) {
+        Task t = e.stub;
+        return "A," + t.getId() + "," + e.segment + "," + e.offset + "," + e.length + ","
+                + t.getCreatedDate() + "," + (t.getCompletedDate() != null ? t.getCompletedDate() : "") + ","
+                + t.getPriority().name() + "\n";
+    }
+
+    // Sorts blocks in file order.
+    private static String blockKey(Entry e) {
+        return String.format("%010d:%019d", e.segment, e.offset);
+    }
+
+    private Path segmentPath(int number) {
+        return dir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private int lastSegmentOnDisk() {
+        int last = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                try {
+                    last = Math.max(last, Integer.parseInt(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (NoSuchFileException | NotDirectoryException ignored) {
+        } catch (IOException e) {
+            System.out.println("Error loading task archive: " + e.getMessage());
+        }
+        return last;
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.*;
+
+// Tasks sharing one status/priority combination, kept sorted by id so the bucket lists
+// in the same order as the main task list. Each bucket also keeps its tasks ordered by
+// creation time, and a completed bucket by completion time, so sorted queries can merge
+// buckets instead of sorting.
+public class TaskBucket {
+    private static final Comparator<Task> CREATED_ORDER = TaskOrder.CREATED.comparator(false);
+    private static final Comparator<Task> COMPLETED_ORDER = TaskOrder.COMPLETED.comparator(false);
+
+    private final ArrayList<Task> items = new ArrayList<>();
+    private final List<Task> view = Collections.unmodifiableList(items);
+    private final TreeSet<Task> byCreated = new TreeSet<>(CREATED_ORDER);
+    private final TreeSet<Task> byCompleted;
+
+    public TaskBucket() {
+        this(false);
+    }
+
+    public TaskBucket(boolean completed) {
+        byCompleted = completed ? new TreeSet<>(COMPLETED_ORDER) : null;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public List<Task> view() {
+        return view;
+    }
+
+    // The ordering keys of a task must not change while it is in the bucket; remove it
+    // first and add it back afterwards.
+    public void add(Task t) {
+        int id = t.getId();
+        if (items.isEmpty() || items.get(items.size() - 1).getId() < id) {
+            items.add(t);
+        } else {
+            int pos = indexOf(id);
+            if (pos >= 0) {
+                return;
+            }
+            items.add(-pos - 1, t);
+        }
+        byCreated.add(t);
+        if (byCompleted != null) {
+            byCompleted.add(t);
+        }
+    }
+
+    // Merges tasks sorted by id, none of them already present, in one pass.
+    public void addAll(List<Task> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        mergeById(items, added);
+        byCreated.addAll(added);
+        if (byCompleted != null) {
+            byCompleted.addAll(added);
+        }
+    }
+
+    // Merges sorted into the id-sorted list, shifting each existing element at most once.
+    static void mergeById(List<Task> list, List<Task> sorted) {
+        if (list.isEmpty() || list.get(list.size() - 1).getId() < sorted.get(0).getId()) {
+            list.addAll(sorted);
+            return;
+        }
+        List<Task> merged = new ArrayList<>(list.size() + sorted.size());
+        int i = 0;
+        int j = 0;
+        while (i < list.size() || j < sorted.size()) {
+            if (j == sorted.size() || (i < list.size() && list.get(i).getId() < sorted.get(j).getId())) {
+                merged.add(list.get(i++));
+            } else {
+                merged.add(sorted.get(j++));
+            }
+        }
+        list.clear();
+        list.addAll(merged);
+    }
+
+    public void remove(Task t) {
+        int pos = indexOf(t.getId());
+        if (pos >= 0) {
+            items.remove(pos);
+            byCreated.remove(t);
+            if (byCompleted != null) {
+                byCompleted.remove(t);
+            }
+        }
+    }
+
+    // One pass over the id list instead of a shift per task.
+    public void removeAll(Set<Task> doomed) {
+        if (items.removeIf(doomed::contains)) {
+            byCreated.removeAll(doomed);
+            if (byCompleted != null) {
+                byCompleted.removeAll(doomed);
+            }
+        }
+    }
+
+    public void clear() {
+        items.clear();
+        byCreated.clear();
+        if (byCompleted != null) {
+            byCompleted.clear();
+        }
+    }
+
+    // The bucket's tasks in the given order. Within one bucket PRIORITY is the same as
+    // CREATED, and COMPLETED is too for a pending bucket.
+    public Iterator<Task> iterator(TaskOrder order, boolean descending) {
+        switch (order) {
+            case ID:
+                if (!descending) {
+                    return view.iterator();
+                }
+                ListIterator<Task> it = view.listIterator(view.size());
+                return new Iterator<Task>() {
+                    public boolean hasNext() {
+                        return it.hasPrevious();
+                    }
+
+                    public Task next() {
+                        return it.previous();
+                    }
+                };
+            case COMPLETED:
+                TreeSet<Task> sorted = byCompleted != null ? byCompleted : byCreated;
+                return descending ? sorted.descendingIterator() : sorted.iterator();
+            default:
+                return descending ? byCreated.descendingIterator() : byCreated.iterator();
+        }
+    }
+
+    private int indexOf(int id) {
+        int lo = 0;
+        int hi = items.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = items.get(mid).getId();
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    // Merges already-sorted buckets into one id-ordered, read-only list. A single bucket
+    // is returned as its live view without copying.
+    public static List<Task> merge(List<TaskBucket> buckets) {
+        if (buckets.size() == 1) {
+            return buckets.get(0).view();
+        }
+        int total = 0;
+        for (TaskBucket b : buckets) {
+            total += b.size();
+        }
+        List<Task> merged = new ArrayList<>(total);
+        int[] heads = new int[buckets.size()];
+        while (merged.size() < total) {
+            int pick = -1;
+            for (int i = 0; i < heads.length; i++) {
+                List<Task> items = buckets.get(i).items;
+                if (heads[i] < items.size() && (pick < 0
+                        || items.get(heads[i]).getId() < buckets.get(pick).items.get(heads[pick]).getId())) {
+                    pick = i;
+                }
+            }
+            merged.add(buckets.get(pick).items.get(heads[pick]++));
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    // Skips offset tasks of the buckets merged in the given order and returns up to limit
+    // of the rest. Only offset + limit tasks are ever looked at, so top-K queries cost
+    // O((offset + K) log buckets) however many tasks there are.
+    public static List<Task> mergeSorted(List<TaskBucket> buckets, TaskOrder order, boolean descending,
+            int offset, int limit) {
+        Comparator<Task> comparator = order.comparator(descending);
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, buckets.size()),
+                (a, b) -> comparator.compare(a.task, b.task));
+        for (TaskBucket b : buckets) {
+            Iterator<Task> it = b.iterator(order, descending);
+            if (it.hasNext()) {
+                heads.add(new Head(it));
+            }
+        }
+        List<Task> page = new ArrayList<>(Math.min(limit, 1024));
+        for (int i = 0; !heads.isEmpty() && page.size() < limit; i++) {
+            Head head = heads.poll();
+            if (i >= offset) {
+                page.add(head.task);
+            }
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return page;
+    }
+
+    private static class Head {
+        final Iterator<Task> it;
+        Task task;
+
+        Head(Iterator<Task> it) {
+            this.it = it;
+            this.task = it.next();
+        }
+
+        boolean advance() {
+            if (!it.hasNext()) {
+                return false;
+            }
+            task = it.next();
+            return true;
+        }
+    }
+}
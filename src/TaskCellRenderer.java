@@ -0,0 +1,78 @@
+import javax.swing.*;
+import java.awt.*;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// JList only asks the renderer for rows it paints, so row text is built for visible
+// tasks only rather than for every task up front. The text of recently painted rows is
+// kept and reused while the task's description, status, priority and schedule are
+// unchanged, so repainting rows that haven't changed allocates nothing. A lazily loaded
+// description is a new string on every read and so is rebuilt each time. Pending tasks
+// past their due date are painted red; only tasks with a due date look at the clock.
+public class TaskCellRenderer extends DefaultListCellRenderer {
+    private static final int CACHED_ROWS = 512;
+
+    private final Color completedText = new Color(127, 140, 141);
+    private final Color overdueText = new Color(192, 57, 43);
+    private final Map<Task, Row> rows = new LinkedHashMap<Task, Row>(CACHED_ROWS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Task, Row> eldest) {
+            if (size() > CACHED_ROWS) {
+                spare = eldest.getValue();
+                return true;
+            }
+            return false;
+        }
+    };
+    // The last evicted row, reused for the next task painted for the first time.
+    private Row spare;
+
+    // The inputs the text was built from, compared by reference.
+    private static class Row {
+        String description;
+        boolean completed;
+        Priority priority;
+        TaskSchedule schedule;
+        String text;
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+            boolean isSelected, boolean cellHasFocus) {
+        Object shown = value instanceof Task ? textOf((Task) value) : value;
+        super.getListCellRendererComponent(list, shown, index, isSelected, cellHasFocus);
+        if (value instanceof Task && !isSelected) {
+            Task t = (Task) value;
+            TaskSchedule schedule = t.getSchedule();
+            if (t.isCompleted()) {
+                setForeground(completedText);
+            } else if (schedule != null && schedule.getDue() != null && schedule.isOverdue(LocalDateTime.now())) {
+                setForeground(overdueText);
+            }
+        }
+        return this;
+    }
+
+    private String textOf(Task t) {
+        String description = t.getDescription();
+        boolean completed = t.isCompleted();
+        Priority priority = t.getPriority();
+        TaskSchedule schedule = t.getSchedule();
+        Row row = rows.get(t);
+        if (row == null) {
+            row = spare != null ? spare : new Row();
+            spare = null;
+            rows.put(t, row);
+        } else if (row.description == description && row.completed == completed && row.priority == priority
+                && row.schedule == schedule) {
+            return row.text;
+        }
+        row.description = description;
+        row.completed = completed;
+        row.priority = priority;
+        row.schedule = schedule;
+        row.text = t.toString();
+        return row.text;
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Blocking client for TaskServer. send() only buffers a request, so many can be
+// pipelined and go out in one write on flush(); call() sends one and waits. Replies and
+// pushed changes are read by a background thread. Pushes are handed to the push handler
+// in groups, each before the reply that follows it, so by the time a request completes
+// the handler has seen every change the server made before answering it.
+public class TaskClient implements AutoCloseable {
+    private static final long CALL_TIMEOUT_SECONDS = 30;
+
+    private final Socket socket;
+    private final BufferedWriter out;
+    private final BufferedReader in;
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRequest = new AtomicInteger(1);
+    private final Thread reader;
+    private volatile Consumer<List<String>> pushHandler = pushes -> { };
+    private volatile boolean closed;
+
+    // What a request returned: the value after OK, and any ROW lines before it.
+    public static class Reply {
+        public final String value;
+        public final List<String> rows;
+
+        Reply(String value, List<String> rows) {
+            this.value = value;
+            this.rows = rows;
+        }
+    }
+
+    private static class Pending {
+        final CompletableFuture<Reply> future = new CompletableFuture<>();
+        final List<String> rows = new ArrayList<>();
+    }
+
+    public TaskClient(String host, int port) throws IOException {
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), 5000);
+        socket.setTcpNoDelay(true);
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 64 * 1024);
+        reader = new Thread(this::readLoop, "task-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // Receives the lines after "* ", e.g. "ADDED <task>", on the reader thread.
+    public void setPushHandler(Consumer<List<String>> handler) {
+        pushHandler = handler;
+    }
+
+    public synchronized CompletableFuture<Reply> send(String command) {
+        int n = nextRequest.getAndIncrement();
+        Pending p = new Pending();
+        pending.put(n, p);
+        if (closed) {
+            failAll(new IOException("Connection to task server closed"));
+            return p.future;
+        }
+        try {
+            out.write(Integer.toString(n));
+            out.write(' ');
+            out.write(command);
+            out.write('\n');
+        } catch (IOException e) {
+            failAll(e);
+        }
+        return p.future;
+    }
+
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            failAll(e);
+        }
+    }
+
+    public Reply call(String command) throws IOException {
+        CompletableFuture<Reply> future = send(command);
+        flush();
+        return await(future);
+    }
+
+    // Unwraps a reply; an ERR reply or a lost connection becomes an IOException.
+    public static Reply await(CompletableFuture<Reply> future) throws IOException {
+        try {
+            return future.get(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Task server did not reply");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for task server");
+        }
+    }
+
+    private void readLoop() {
+        List<String> pushes = new ArrayList<>();
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("* ")) {
+                    pushes.add(line.substring(2));
+                    if (!in.ready()) {
+                        deliver(pushes);
+                        pushes = new ArrayList<>();
+                    }
+                    continue;
+                }
+                if (!pushes.isEmpty()) {
+                    deliver(pushes);
+                    pushes = new ArrayList<>();
+                }
+                int space = line.indexOf(' ');
+                int second = line.indexOf(' ', space + 1);
+                Pending p = pending.get(Integer.parseInt(line.substring(0, space)));
+                if (p == null) {
+                    continue;
+                }
+                String kind = second < 0 ? line.substring(space + 1) : line.substring(space + 1, second);
+                String rest = second < 0 ? "" : line.substring(second + 1);
+                if (kind.equals("ROW")) {
+                    p.rows.add(rest);
+                    continue;
+                }
+                pending.remove(Integer.parseInt(line.substring(0, space)));
+                if (kind.equals("OK")) {
+                    p.future.complete(new Reply(rest, p.rows));
+                } else {
+                    p.future.completeExceptionally(new IOException(rest));
+                }
+            }
+            failAll(new IOException("Task server closed the connection"));
+        } catch (IOException | RuntimeException e) {
+            failAll(new IOException("Lost connection to task server: " + e.getMessage()));
+        }
+    }
+
+    private void deliver(List<String> pushes) {
+        try {
+            pushHandler.accept(pushes);
+        } catch (RuntimeException e) {
+            System.out.println("Error applying task changes: " + e.getMessage());
+        }
+    }
+
+    private void failAll(IOException e) {
+        closed = true;
+        for (Integer n : new ArrayList<>(pending.keySet())) {
+            Pending p = pending.remove(n);
+            if (p != null) {
+                p.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            reader.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
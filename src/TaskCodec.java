@@ -0,0 +1,24 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// Record layout for importing and exporting tasks as text. Files are read in chunks
+// that each end on a record boundary, so parse() may run on several chunks at once;
+// readHeader() is called once, before any parsing.
+public interface TaskCodec {
+    void writeHeader(Writer out) throws IOException;
+
+    void write(Task t, Writer out) throws IOException;
+
+    boolean hasHeader();
+
+    void readHeader(String record);
+
+    // Whether a quoted value may contain line breaks, so a newline alone does not end
+    // a record.
+    boolean quotedNewlines();
+
+    // Parses every record in the chunk into detached tasks (id 0); bad records are
+    // skipped and counted in skipped[0].
+    List<Task> parse(String chunk, int[] skipped);
+}
@@ -0,0 +1,64 @@
+import java.util.List;
+
+// One change published by TaskManager. CLEARED stands for a whole clear-completed
+// operation and carries the removed ids instead of a task. APPENDED stands for one chunk
+// of a background load, the ADDED events of its tasks in one.
+public class TaskEvent {
+    public enum Type { ADDED, UPDATED, COMPLETED, REMOVED, CLEARED, APPENDED }
+
+    private final Type type;
+    private final Task task;
+    private final int[] clearedIds;
+    private final List<Task> appended;
+
+    public TaskEvent(Type type, Task task) {
+        this.type = type;
+        this.task = task;
+        this.clearedIds = null;
+        this.appended = null;
+    }
+
+    public TaskEvent(int[] clearedIds) {
+        this.type = Type.CLEARED;
+        this.task = null;
+        this.clearedIds = clearedIds;
+        this.appended = null;
+    }
+
+    public TaskEvent(List<Task> appended) {
+        this.type = Type.APPENDED;
+        this.task = null;
+        this.clearedIds = null;
+        this.appended = appended;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The live task, or for REMOVED the task as it was when removed; null for CLEARED.
+    public Task getTask() {
+        return task;
+    }
+
+    public int getId() {
+        return task.getId();
+    }
+
+    // Ascending ids of the tasks removed by a CLEARED event.
+    public int[] getClearedIds() {
+        return clearedIds;
+    }
+
+    // The tasks added by an APPENDED event, in the order they were loaded, which is
+    // normally id order.
+    public List<Task> getAppended() {
+        return appended;
+    }
+
+    @Override
+    public String toString() {
+        return type + (task != null ? " " + task.getId()
+                : " " + (clearedIds != null ? clearedIds.length : appended.size()) + " tasks");
+    }
+}
@@ -0,0 +1,28 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// On-disk layout of a task snapshot. Reads and writes also carry the journal sequence
+// number the snapshot covers, so records already folded into it are not replayed twice.
+public interface TaskFormat {
+    long read(Path path, Consumer<Task> sink) throws IOException;
+
+    // As read(path, sink), also reporting the percentage of the snapshot read so far, for
+    // a loading screen. Reports only 100 at the end unless the format knows better.
+    default long read(Path path, Consumer<Task> sink, IntConsumer progress) throws IOException {
+        long seq = read(path, sink);
+        progress.accept(100);
+        return seq;
+    }
+
+    // Writes the whole snapshot to path and forces it to disk; the caller renames it into
+    // place afterwards.
+    void write(Path path, List<Task> tasks, long seq) throws IOException;
+
+    // True when read() leaves descriptions encoded in the file until they are needed.
+    default boolean isLazy() {
+        return false;
+    }
+}
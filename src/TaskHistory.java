@@ -0,0 +1,137 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Undo and redo stacks for TaskManager. An entry holds only the tasks one mutation or
+// batch touched, as they were before and after it (null where the task didn't exist),
+// so undoing a clear of 100k tasks costs those 100k tasks, not a copy of the list. The
+// stacks are bounded by an estimate of the heap their tasks hold; the oldest entries go
+// first, and a single entry over the whole budget empties the history rather than
+// leaving a gap that later undos would step across.
+public class TaskHistory {
+    private final long budgetBytes;
+    private final int maxEntries;
+    private final Deque<Entry> undo = new ArrayDeque<>();
+    private final Deque<Entry> redo = new ArrayDeque<>();
+    private long bytes;
+
+    // The tasks one mutation or batch changed. Before and after are detached copies, or
+    // tasks already removed from the manager, so nothing else changes them.
+    public static class Entry {
+        final String label;
+        final List<Change> changes = new ArrayList<>();
+        long bytes;
+        boolean overflowed;
+
+        Entry(String label) {
+            this.label = label;
+        }
+    }
+
+    static class Change {
+        final int id;
+        final Task before;
+        final Task after;
+
+        Change(int id, Task before, Task after) {
+            this.id = id;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    public TaskHistory(long budgetBytes, int maxEntries) {
+        this.budgetBytes = budgetBytes;
+        this.maxEntries = maxEntries;
+    }
+
+    // Adds one task's change to an entry still being built, dropping the changes once
+    // the entry alone is over budget.
+    public void record(Entry entry, int id, Task before, Task after) {
+        if (entry.overflowed) {
+            return;
+        }
+        entry.bytes += 32 + (before != null ? before.estimatedBytes() : 0)
+                + (after != null ? after.estimatedBytes() : 0);
+        if (entry.bytes > budgetBytes) {
+            entry.overflowed = true;
+            entry.changes.clear();
+            return;
+        }
+        entry.changes.add(new Change(id, before, after));
+    }
+
+    // A new change invalidates everything that could be redone.
+    public synchronized void commit(Entry entry) {
+        if (entry.overflowed) {
+            clear();
+            return;
+        }
+        if (entry.changes.isEmpty()) {
+            return;
+        }
+        for (Entry e : redo) {
+            bytes -= e.bytes;
+        }
+        redo.clear();
+        undo.addFirst(entry);
+        bytes += entry.bytes;
+        while (undo.size() > maxEntries || bytes > budgetBytes) {
+            bytes -= undo.removeLast().bytes;
+        }
+    }
+
+    public synchronized Entry popUndo() {
+        Entry e = undo.pollFirst();
+        if (e != null) {
+            redo.addFirst(e);
+        }
+        return e;
+    }
+
+    public synchronized Entry popRedo() {
+        Entry e = redo.pollFirst();
+        if (e != null) {
+            undo.addFirst(e);
+        }
+        return e;
+    }
+
+    public synchronized String getUndoLabel() {
+        return undo.isEmpty() ? null : undo.peekFirst().label;
+    }
+
+    public synchronized String getRedoLabel() {
+        return redo.isEmpty() ? null : redo.peekFirst().label;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized void clear() {
+        undo.clear();
+        redo.clear();
+        bytes = 0;
+    }
+
+    // The state to put each task back into, one per id in ascending id order: the
+    // earliest before for undo, the latest after for redo.
+    static List<Change> targets(List<Change> changes, boolean undo) {
+        List<Change> sorted = new ArrayList<>(changes);
+        sorted.sort((a, b) -> Integer.compare(a.id, b.id));
+        List<Change> targets = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            Change c = sorted.get(i);
+            if (!targets.isEmpty() && targets.get(targets.size() - 1).id == c.id) {
+                if (!undo) {
+                    targets.set(targets.size() - 1, c);
+                }
+            } else {
+                targets.add(c);
+            }
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,491 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+public class TaskJournal {
+    private static final long COMPACT_THRESHOLD = 1L << 20;
+    private static final Object STOP = new Object();
+
+    private final TaskFormat format;
+    private final Path snapshotPath;
+    private TaskFormat legacyFormat;
+    private Path legacyPath;
+    private volatile boolean migrating;
+    private final Path journalPath;
+    private final Path rolledPath;
+    private final ExecutorService compactor;
+    private final boolean async;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private Thread writer;
+    private FileChannel out;
+    private long seq;
+    private long journalBytes;
+    private volatile boolean rolledPending;
+    private volatile boolean compacting;
+    private boolean closed;
+    // While a batch is open, synchronous appends collect here and are written in one go.
+    private int batchDepth;
+    private final ByteArrayOutputStream batched = new ByteArrayOutputStream();
+    private int batchedRecords;
+
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile long flushCount;
+    private volatile long flushedRecords;
+    // Replaced by the owner's metrics; until then everything is recorded privately.
+    private volatile TaskMetrics metrics = new TaskMetrics();
+    private volatile OperationStats writeTime = metrics.operation("journal.write");
+    private volatile OperationStats snapshotTime = metrics.operation("snapshot.write");
+    private volatile long lastSnapshotBytes;
+
+    // Snapshot rows captured on the caller's thread, applied by whoever owns the file.
+    private static class Rotation {
+        final List<Task> tasks;
+        final long seq;
+
+        Rotation(List<Task> tasks, long seq) {
+            this.tasks = tasks;
+            this.seq = seq;
+        }
+    }
+
+    // Keeps nothing: appends are dropped and load finds no tasks.
+    public TaskJournal() {
+        format = null;
+        snapshotPath = null;
+        journalPath = null;
+        rolledPath = null;
+        compactor = null;
+        async = false;
+    }
+
+    public TaskJournal(TaskFormat format, String snapshotFile, String journalFile) {
+        this(format, snapshotFile, journalFile, false);
+    }
+
+    // In async mode append() only queues the record; a single writer thread drains
+    // whatever has piled up and writes it as one batch.
+    public TaskJournal(TaskFormat format, String snapshotFile, String journalFile, boolean async) {
+        this.format = format;
+        snapshotPath = Paths.get(snapshotFile);
+        journalPath = Paths.get(journalFile);
+        rolledPath = Paths.get(journalFile + ".old");
+        this.async = async;
+        compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "task-journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // When the snapshot file does not exist yet but one in another format does, load
+    // reads that one instead and the next compaction rewrites it in this format.
+    public void migrateFrom(TaskFormat legacyFormat, String legacyFile) {
+        this.legacyFormat = legacyFormat;
+        this.legacyPath = Paths.get(legacyFile);
+    }
+
+    // Feeds the snapshot tasks, then every journal record written after it, in order.
+    public void load(Consumer<Task> snapshotTasks, Consumer<String> records) {
+        load(snapshotTasks, records, percent -> { });
+    }
+
+    // progress gets the percentage of the snapshot read, reaching 100 before the journal
+    // records are replayed.
+    public void load(Consumer<Task> snapshotTasks, Consumer<String> records, IntConsumer progress) {
+        seq = 0;
+        if (snapshotPath == null) {
+            return;
+        }
+        migrating = legacyPath != null && !Files.exists(snapshotPath) && Files.exists(legacyPath);
+        try {
+            seq = migrating
+                    ? legacyFormat.read(legacyPath, snapshotTasks, progress)
+                    : format.read(snapshotPath, snapshotTasks, progress);
+        } catch (NoSuchFileException ignored) {
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error loading tasks: " + e.getMessage());
+        }
+
+        progress.accept(100);
+        rolledPending = Files.exists(rolledPath);
+        if (rolledPending) {
+            replay(rolledPath, records, false);
+        }
+        replay(journalPath, records, true);
+        openJournal();
+        journalBytes = journalSize();
+
+        if (async && writer == null) {
+            writer = new Thread(this::runWriter, "task-journal-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    // Synchronized so concurrent writers get sequence numbers in the order their records
+    // reach the file.
+    public synchronized void append(String record) {
+        if (journalPath == null) {
+            return;
+        }
+        byte[] line = (++seq + "," + record + "\n").getBytes(StandardCharsets.UTF_8);
+        journalBytes += line.length;
+        if (async) {
+            queue.add(line);
+        } else if (batchDepth > 0) {
+            batched.writeBytes(line);
+            batchedRecords++;
+        } else {
+            long start = System.nanoTime();
+            write(ByteBuffer.wrap(line));
+            recordFlush(start, 1, line.length);
+        }
+    }
+
+    // Async appends are already written in batches by the writer thread; this gives
+    // synchronous mode the same single write per batch.
+    public synchronized void beginBatch() {
+        batchDepth++;
+    }
+
+    public synchronized void endBatch() {
+        if (--batchDepth == 0) {
+            writeBatched();
+        }
+    }
+
+    public synchronized boolean needsCompaction() {
+        return (journalBytes > COMPACT_THRESHOLD || rolledPending || migrating) && !compacting;
+    }
+
+    // Rolls the journal aside and writes the snapshot on the compactor thread. Until the
+    // snapshot is renamed into place the rolled journal still covers every record, so a
+    // crash at any point replays to the same state.
+    public synchronized void compact(List<Task> snapshot) {
+        if (compacting) {
+            return;
+        }
+        compacting = true;
+        journalBytes = 0;
+        Rotation rotation = new Rotation(snapshot, seq);
+        if (async) {
+            queue.add(rotation);
+        } else {
+            writeBatched();
+            rotate(rotation);
+        }
+    }
+
+    // Blocks until every record appended so far is on disk.
+    public void flush() {
+        if (journalPath == null) {
+            return;
+        }
+        if (!async) {
+            synchronized (this) {
+                writeBatched();
+                force();
+            }
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        queue.add(done);
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized void close() {
+        if (closed || journalPath == null) {
+            return;
+        }
+        closed = true;
+        if (writer != null) {
+            queue.add(STOP);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writeBatched();
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        force();
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("Error closing task journal: " + e.getMessage());
+        }
+    }
+
+    public void setMetrics(TaskMetrics metrics) {
+        writeTime = metrics.operation("journal.write");
+        snapshotTime = metrics.operation("snapshot.write");
+        metrics.gauge("snapshot.lastBytes", () -> lastSnapshotBytes);
+        this.metrics = metrics;
+    }
+
+    // True when load() hands over tasks whose descriptions are still in the mapped snapshot.
+    public boolean isLazy() {
+        return format != null && format.isLazy() && !migrating;
+    }
+
+    // False for the memory-only journal, whose append() discards every record.
+    public boolean isPersistent() {
+        return journalPath != null;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public double getLastFlushMillis() {
+        return lastFlushNanos / 1_000_000.0;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos / 1_000_000.0;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getFlushedRecords() {
+        return flushedRecords;
+    }
+
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>();
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            long start = System.nanoTime();
+            int records = 0;
+            for (Object item : batch) {
+                if (item instanceof byte[]) {
+                    pending.writeBytes((byte[]) item);
+                    records++;
+                    continue;
+                }
+                writePending(pending, start, records);
+                records = 0;
+                if (item instanceof Rotation) {
+                    rotate((Rotation) item);
+                } else if (item instanceof CountDownLatch) {
+                    force();
+                    ((CountDownLatch) item).countDown();
+                } else if (item == STOP) {
+                    return;
+                }
+                start = System.nanoTime();
+            }
+            writePending(pending, start, records);
+            batch.clear();
+        }
+    }
+
+    private void writeBatched() {
+        if (batched.size() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        int bytes = batched.size();
+        write(ByteBuffer.wrap(batched.toByteArray()));
+        batched.reset();
+        recordFlush(start, batchedRecords, bytes);
+        batchedRecords = 0;
+    }
+
+    private void writePending(ByteArrayOutputStream pending, long start, int records) {
+        if (pending.size() == 0) {
+            return;
+        }
+        int bytes = pending.size();
+        write(ByteBuffer.wrap(pending.toByteArray()));
+        pending.reset();
+        recordFlush(start, records, bytes);
+    }
+
+    private void recordFlush(long start, int records, int bytes) {
+        long elapsed = writeTime.record(start);
+        metrics.count("journal.bytes", bytes);
+        metrics.count("journal.records", records);
+        lastFlushNanos = elapsed;
+        if (elapsed > maxFlushNanos) {
+            maxFlushNanos = elapsed;
+        }
+        flushCount++;
+        flushedRecords += records;
+    }
+
+    private void write(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving tasks: " + e.getMessage());
+        }
+    }
+
+    private void force() {
+        try {
+            out.force(false);
+        } catch (IOException e) {
+            System.out.println("Error saving tasks: " + e.getMessage());
+        }
+    }
+
+    private void rotate(Rotation rotation) {
+        try {
+            out.close();
+            if (rolledPending) {
+                try (OutputStream rolled = Files.newOutputStream(rolledPath, StandardOpenOption.APPEND)) {
+                    Files.copy(journalPath, rolled);
+                }
+                Files.delete(journalPath);
+            } else {
+                Files.move(journalPath, rolledPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+            rolledPending = true;
+        } catch (IOException e) {
+            System.out.println("Error compacting tasks: " + e.getMessage());
+        }
+        openJournal();
+        compactor.submit(() -> writeSnapshot(rotation.tasks, rotation.seq));
+    }
+
+    private void writeSnapshot(List<Task> tasks, long snapshotSeq) {
+        long start = System.nanoTime();
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            format.write(tmp, tasks, snapshotSeq);
+            lastSnapshotBytes = Files.size(tmp);
+            metrics.count("snapshot.bytes", lastSnapshotBytes);
+            snapshotTime.record(start);
+            // The rename must be on disk before the rolled journal goes, or a crash could
+            // bring back the old snapshot without the records it is missing. Replacing
+            // a mapped tasks.dat works on Linux and macOS only; BinaryTaskFormat does not
+            // map snapshots on Windows.
+            Files.move(tmp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(snapshotPath);
+            Files.deleteIfExists(rolledPath);
+            rolledPending = false;
+            if (migrating) {
+                Files.move(legacyPath, legacyPath.resolveSibling(legacyPath.getFileName() + ".migrated"),
+                        StandardCopyOption.REPLACE_EXISTING);
+                migrating = false;
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving tasks: " + e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    // Forces the directory holding file, so a rename into it survives a crash. Not every
+    // platform can open a directory to force it; there the rename is as durable as the
+    // file system makes it.
+    static void syncDirectory(Path file) {
+        Path dir = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Only newline-terminated records count; a torn tail left by a crash is dropped and,
+    // for the live journal, truncated so new appends start on a clean line.
+    private void replay(Path path, Consumer<String> records, boolean truncateTail) {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            System.out.println("Error loading tasks: " + e.getMessage());
+            return;
+        }
+
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != '\n') {
+                continue;
+            }
+            String line = new String(data, start, i - start, StandardCharsets.UTF_8);
+            start = i + 1;
+            int comma = line.indexOf(',');
+            if (comma <= 0) {
+                continue;
+            }
+            long recordSeq;
+            try {
+                recordSeq = Long.parseLong(line.substring(0, comma));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (recordSeq > seq) {
+                try {
+                    records.accept(line.substring(comma + 1));
+                } catch (RuntimeException e) {
+                    System.out.println("Skipping bad journal record " + recordSeq + ": " + e.getMessage());
+                }
+                seq = recordSeq;
+            }
+        }
+
+        if (truncateTail && start < data.length) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(start);
+            } catch (IOException e) {
+                System.out.println("Error loading tasks: " + e.getMessage());
+            }
+        }
+    }
+
+    private void openJournal() {
+        try {
+            out = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("Error opening task journal: " + e.getMessage());
+            if (out == null) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private long journalSize() {
+        try {
+            return out.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
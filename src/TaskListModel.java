@@ -0,0 +1,224 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// List model over the manager's current filter. Rows are the model's own copy, so the
+// list never reads state another thread is changing. In id order it is patched from the
+// manager's change events, so only rows that actually moved are repainted; in any other
+// order it shows the first page of the sorted view and queries that page again on change.
+public class TaskListModel extends AbstractListModel<Task> implements TaskListener {
+    // A batch this large is cheaper to apply by fetching the rows again.
+    private static final int RELOAD_THRESHOLD = 1000;
+    private static final int SORTED_PAGE = 1000;
+
+    private final TaskManager manager;
+    private String filter = "ALL";
+    // The filter parsed once, for checking tasks one by one as events arrive.
+    private Boolean filterStatus;
+    private Priority filterPriority;
+    private TaskOrder order = TaskOrder.ID;
+    private boolean descending;
+    private int[] searchIds;
+    private List<Task> rows;
+
+    public TaskListModel(TaskManager manager) {
+        this.manager = manager;
+        this.rows = fetch();
+    }
+
+    @Override
+    public int getSize() {
+        return rows.size();
+    }
+
+    @Override
+    public Task getElementAt(int index) {
+        return rows.get(index);
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+        filterStatus = TaskManager.filterStatus(filter);
+        filterPriority = TaskManager.filterPriority(filter);
+        reload();
+    }
+
+    public void setOrder(TaskOrder order, boolean descending) {
+        this.order = order;
+        this.descending = descending;
+        reload();
+    }
+
+    // Narrows the list to the given search hits (still subject to the filter); null
+    // goes back to showing the whole filter.
+    public void setSearchResults(int[] ids) {
+        this.searchIds = ids;
+        reload();
+    }
+
+    public void reload() {
+        int oldSize = rows.size();
+        rows = fetch();
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        if (!rows.isEmpty()) {
+            fireIntervalAdded(this, 0, rows.size() - 1);
+        }
+    }
+
+    // Register with SwingUtilities::invokeLater as the executor.
+    @Override
+    public void tasksChanged(List<TaskEvent> events) {
+        if (!inIdOrder()) {
+            refreshPage();
+            return;
+        }
+        if (events.size() > RELOAD_THRESHOLD) {
+            reload();
+            return;
+        }
+        for (TaskEvent e : events) {
+            switch (e.getType()) {
+                case ADDED:
+                case UPDATED:
+                case COMPLETED:
+                    place(e.getTask());
+                    break;
+                case REMOVED:
+                    removeRow(e.getId());
+                    break;
+                case CLEARED:
+                    if (e.getClearedIds().length > RELOAD_THRESHOLD) {
+                        reload();
+                    } else {
+                        for (int id : e.getClearedIds()) {
+                            removeRow(id);
+                        }
+                    }
+                    break;
+                case APPENDED:
+                    append(e.getAppended());
+                    break;
+            }
+        }
+    }
+
+    // Replaces the rows in place so the selected index survives.
+    private void refreshPage() {
+        int oldSize = rows.size();
+        rows = fetch();
+        int common = Math.min(oldSize, rows.size());
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+        if (rows.size() > oldSize) {
+            fireIntervalAdded(this, oldSize, rows.size() - 1);
+        } else if (rows.size() < oldSize) {
+            fireIntervalRemoved(this, rows.size(), oldSize - 1);
+        }
+    }
+
+    private boolean inIdOrder() {
+        return order == TaskOrder.ID && !descending;
+    }
+
+    // Works out from the task's current state whether its row changed in place, left
+    // the filter or joined it.
+    private void place(Task t) {
+        int pos = positionOf(t.getId());
+        boolean shown = shows(t);
+        if (pos >= 0 && shown) {
+            fireContentsChanged(this, pos, pos);
+        } else if (pos >= 0) {
+            rows.remove(pos);
+            fireIntervalRemoved(this, pos, pos);
+        } else if (shown) {
+            int at = -pos - 1;
+            rows.add(at, t);
+            fireIntervalAdded(this, at, at);
+        }
+    }
+
+    // A loaded chunk comes after every row so far, so the tasks it shows go on the end
+    // with one event. Should it not, its tasks are placed one by one as ADDED ones would be.
+    private void append(List<Task> tasks) {
+        List<Task> shown = new ArrayList<>();
+        int last = rows.isEmpty() ? Integer.MIN_VALUE : rows.get(rows.size() - 1).getId();
+        for (Task t : tasks) {
+            if (t.getId() <= last) {
+                if (tasks.size() > RELOAD_THRESHOLD) {
+                    reload();
+                } else {
+                    tasks.forEach(this::place);
+                }
+                return;
+            }
+            last = t.getId();
+            if (shows(t)) {
+                shown.add(t);
+            }
+        }
+        if (!shown.isEmpty()) {
+            int at = rows.size();
+            rows.addAll(shown);
+            fireIntervalAdded(this, at, rows.size() - 1);
+        }
+    }
+
+    private boolean shows(Task t) {
+        return TaskManager.matches(filterStatus, filterPriority, t)
+                && (searchIds == null || Arrays.binarySearch(searchIds, t.getId()) >= 0);
+    }
+
+    private void removeRow(int id) {
+        int pos = positionOf(id);
+        if (pos >= 0) {
+            rows.remove(pos);
+            fireIntervalRemoved(this, pos, pos);
+        }
+    }
+
+    private List<Task> fetch() {
+        if (searchIds == null) {
+            return inIdOrder()
+                    ? manager.getFilteredTasksSnapshot(filter)
+                    : manager.getSortedTasks(filter, order, descending, 0, SORTED_PAGE);
+        }
+        List<Task> found = new ArrayList<>(searchIds.length);
+        for (int id : searchIds) {
+            Task t = manager.getTaskById(id);
+            if (t != null && TaskManager.matches(filterStatus, filterPriority, t)) {
+                found.add(t);
+            }
+        }
+        if (!inIdOrder()) {
+            found.sort(order.comparator(descending));
+        }
+        return found;
+    }
+
+    // Rows are always in id order, whatever the filter. Returns -(insertion point + 1)
+    // when the id is absent.
+    private int positionOf(int id) {
+        int lo = 0;
+        int hi = rows.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = rows.get(mid).getId();
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+}
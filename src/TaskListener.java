@@ -0,0 +1,7 @@
+import java.util.List;
+
+// Receives TaskManager changes, one call per mutation or per batch, in the order they
+// happened on the mutating thread.
+public interface TaskListener {
+    void tasksChanged(List<TaskEvent> events);
+}
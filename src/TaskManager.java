@@ -1,126 +1,1437 @@
-import java.io.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
 
 public class TaskManager {
-    private List<Task> tasks;
+    // Tasks are partitioned over shards by id, each with its own read/write lock, so
+    // writers touching different shards never wait on each other. With a single shard
+    // list reads are live views; with more they are snapshots taken under every shard's
+    // read lock. Callers on other threads than the writers should use the *Snapshot
+    // methods.
+    private final TaskShard[] shards;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private TaskJournal journal;
+    private final TaskArchive archive;
+    private final List<Registration> listeners = new CopyOnWriteArrayList<>();
+    private final List<ReminderRegistration> reminderListeners = new CopyOnWriteArrayList<>();
+    private final ReminderScheduler reminders = new ReminderScheduler(this::deliverReminders);
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    // Set while the search index of a lazy load is built in the background.
+    private volatile CompletableFuture<Void> indexing;
+    private Thread loader;
+    // Latency of every public operation that does real work; trivial getters are left out.
+    private final TaskMetrics metrics = new TaskMetrics();
+    private final OperationStats addTaskTime = metrics.operation("addTask");
+    private final OperationStats addAllTime = metrics.operation("addAll");
+    private final OperationStats markDoneTime = metrics.operation("markDone");
+    private final OperationStats editTime = metrics.operation("editTask");
+    private final OperationStats priorityTime = metrics.operation("updatePriority");
+    private final OperationStats scheduleTime = metrics.operation("setSchedule");
+    private final OperationStats deleteTime = metrics.operation("deleteTask");
+    private final OperationStats markDoneAllTime = metrics.operation("markDoneAll");
+    private final OperationStats priorityAllTime = metrics.operation("updatePriorityAll");
+    private final OperationStats deleteAllTime = metrics.operation("deleteAll");
+    private final OperationStats snapshotTime = metrics.operation("getTasksSnapshot");
+    private final OperationStats filterTime = metrics.operation("getFilteredTasks");
+    private final OperationStats sortedTime = metrics.operation("getSortedTasks");
+    private final OperationStats searchTime = metrics.operation("search");
+    private final OperationStats clearTime = metrics.operation("deleteCompletedTasks");
+    private final OperationStats archiveTime = metrics.operation("archiveCompleted");
+    private final OperationStats archiveSearchTime = metrics.operation("searchArchive");
+    private final OperationStats restoreTime = metrics.operation("restoreFromArchive");
+    private final OperationStats analyticsTime = metrics.operation("analytics");
+    private final OperationStats saveTime = metrics.operation("saveTasks");
+    private final OperationStats loadTime = metrics.operation("loadTasks");
+    private final OperationStats undoTime = metrics.operation("undo");
+    private final OperationStats redoTime = metrics.operation("redo");
+    private final TaskHistory history = new TaskHistory(HISTORY_BUDGET_BYTES, HISTORY_ENTRIES);
+    // Nesting depth of batch() on the calling thread, and the events it has not delivered yet.
+    private final ThreadLocal<int[]> batchDepth = ThreadLocal.withInitial(() -> new int[1]);
+    private final ThreadLocal<List<TaskEvent>> pendingEvents = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<TaskHistory.Entry> pendingUndo = new ThreadLocal<>();
     private static final String FILE_PATH = "tasks.txt";
+    private static final String BINARY_FILE_PATH = "tasks.dat";
+    private static final String JOURNAL_PATH = "tasks.journal";
+    private static final String ARCHIVE_DIR = "archive";
+    private static final long HISTORY_BUDGET_BYTES = 32L << 20;
+    private static final int HISTORY_ENTRIES = 100;
+    private static final int SMALL_CHANGE = 32;
+    // Snapshot tasks per ADDED batch while loading in the background.
+    private static final int LOAD_CHUNK = 1 << 16;
+
+    private static class Registration {
+        final TaskListener listener;
+        final Executor executor;
+
+        Registration(TaskListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+
+    private static class ReminderRegistration {
+        final ReminderListener listener;
+        final Executor executor;
+
+        ReminderRegistration(ReminderListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
 
     public TaskManager() {
-        tasks = new ArrayList<>();
-        loadTasks();
+        this(false);
     }
 
-    public void addTask(String desc, String priority) {
-        tasks.add(new Task(tasks.size() + 1, desc));
-        tasks.get(tasks.size() - 1).setPriority(priority);
-        saveTasks();
+    public TaskManager(boolean asyncPersistence) {
+        this(asyncPersistence, Boolean.getBoolean("tasktracker.binary"));
+    }
+
+    public TaskManager(boolean asyncPersistence, boolean binaryFormat) {
+        this(asyncPersistence, binaryFormat, Integer.getInteger("tasktracker.shards", 1));
+    }
+
+    // With asyncPersistence, mutations return as soon as memory is updated and the
+    // journal is written by a background thread; call close() before exiting.
+    // With binaryFormat, snapshots live in tasks.dat; an existing tasks.txt is read once
+    // and migrated. Setting tasktracker.lazy as well leaves descriptions in the mapped
+    // file until a task is shown or edited, on Linux and macOS only.
+    // More than one shard makes the manager safe for many concurrent writers.
+    // Setting tasktracker.columnar keeps each task's status, priority, dates and schedule
+    // in its shard's TaskStore columns, which takes less heap per task.
+    // Setting tasktracker.archiveDays moves tasks completed more than that many days ago
+    // to the archive at startup. Setting tasktracker.metricsFile writes the metrics report
+    // to that file every minute and on close. Files live in the working directory unless
+    // tasktracker.dir names another one.
+    public TaskManager(boolean asyncPersistence, boolean binaryFormat, int shardCount) {
+        this(asyncPersistence, binaryFormat, shardCount, false);
+    }
+
+    // With loadLater the manager starts out empty until loadInBackground() is called.
+    public TaskManager(boolean asyncPersistence, boolean binaryFormat, int shardCount, boolean loadLater) {
+        this(shardCount, openJournal(asyncPersistence, binaryFormat), new TaskArchive(dataFile(ARCHIVE_DIR)),
+                loadLater);
+        if (!loadLater) {
+            archiveAtStartup();
+            loaded.complete(null);
+        }
+    }
+
+    // Keeps nothing on disk; RemoteTaskManager's replica of a server's tasks.
+    TaskManager(int shardCount) {
+        this(shardCount, new TaskJournal(), new TaskArchive(), false);
+        loaded.complete(null);
+    }
+
+    private TaskManager(int shardCount, TaskJournal journal, TaskArchive archive, boolean loadLater) {
+        shards = new TaskShard[Math.max(1, shardCount)];
+        boolean columnar = Boolean.getBoolean("tasktracker.columnar");
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new TaskShard(columnar ? new TaskStore() : null);
+        }
+        this.journal = journal;
+        journal.setMetrics(metrics);
+        metrics.gauge("tasks.total", () -> getCompletedCount() + getPendingCount());
+        metrics.gauge("tasks.completed", this::getCompletedCount);
+        metrics.gauge("tasks.archived", this::getArchivedCount);
+        metrics.gauge("journal.queueDepth", this::getPersistenceQueueDepth);
+        metrics.gauge("history.bytes", history::getBytes);
+        metrics.gauge("reminders.pending", reminders::getPendingCount);
+        metrics.gauge("tasks.overdue", reminders::getOverdueCount);
+        // Registered first, so other listeners already see the new overdue state.
+        addTaskListener(reminders, Runnable::run);
+        String metricsFile = System.getProperty("tasktracker.metricsFile");
+        if (metricsFile != null) {
+            metrics.dumpEvery(Paths.get(metricsFile), 60);
+        }
+        this.archive = archive;
+        if (!loadLater) {
+            archive.load();
+            loadTasks(null);
+        }
+    }
+
+    private void archiveAtStartup() {
+        int archiveDays = Integer.getInteger("tasktracker.archiveDays", -1);
+        if (archiveDays >= 0) {
+            archiveCompleted(archiveDays);
+        }
+    }
+
+    // Loads the tasks of a manager made with loadLater on a "task-loader" thread, so a
+    // window can be shown first. Snapshot tasks are added in chunks that listeners get as
+    // one APPENDED event each, and progress gets the percentage of the snapshot read, on the loader
+    // thread. Reads are safe meanwhile, but nothing may change tasks until whenLoaded()
+    // fires: the journal is replayed and opened for writing at the end.
+    public void loadInBackground(IntConsumer progress) {
+        if (journal.isLazy()) {
+            // Before the loader starts, so no search can get in ahead of it.
+            indexing = new CompletableFuture<>();
+        }
+        loader = new Thread(() -> {
+            try {
+                archive.load();
+                loadTasks(progress);
+                archiveAtStartup();
+            } catch (RuntimeException e) {
+                System.out.println("Error loading tasks: " + e.getMessage());
+            } finally {
+                loaded.complete(null);
+            }
+        }, "task-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isLoaded() {
+        return loaded.isDone();
+    }
+
+    // Runs action on executor once every task is loaded, right away if they already are.
+    public void whenLoaded(Runnable action, Executor executor) {
+        loaded.thenRunAsync(action, executor);
+    }
+
+    private static TaskJournal openJournal(boolean async, boolean binary) {
+        if (!binary) {
+            return new TaskJournal(new TextTaskFormat(), dataFile(FILE_PATH), dataFile(JOURNAL_PATH), async);
+        }
+        BinaryTaskFormat format = new BinaryTaskFormat(Boolean.getBoolean("tasktracker.lazy"));
+        TaskJournal journal = new TaskJournal(format, dataFile(BINARY_FILE_PATH), dataFile(JOURNAL_PATH), async);
+        journal.migrateFrom(new TextTaskFormat(), dataFile(FILE_PATH));
+        return journal;
+    }
+
+    private static String dataFile(String name) {
+        return Paths.get(System.getProperty("tasktracker.dir", "")).resolve(name).toString();
+    }
+
+    public Task addTask(String desc, Priority priority) {
+        return addTask(desc, priority, null);
+    }
+
+    public Task addTask(String desc, Priority priority, TaskSchedule schedule) {
+        long start = System.nanoTime();
+        desc = singleLine(desc);
+        Task t = new Task(nextId.getAndIncrement(), desc);
+        t.setPriority(priority);
+        t.setSchedule(schedule);
+        TaskShard shard = shardOf(t.getId());
+        Lock lock = shard.lock.writeLock();
+        lock.lock();
+        try {
+            journal.append("A," + t.getId() + "," + t.getCreatedDate() + "," + priority.name() + "," + desc);
+            if (schedule != null) {
+                journal.append("S," + t.getId() + "," + schedule.encode());
+            }
+            shard.insert(t);
+            recordUndo("Add Task", t.getId(), null, t.copy());
+        } finally {
+            lock.unlock();
+        }
+        publish(new TaskEvent(TaskEvent.Type.ADDED, t));
+        changed();
+        addTaskTime.record(start);
+        return t;
     }
 
     public void deleteTask(int index) {
-        if (index >= 0 && index < tasks.size()) {
-            tasks.remove(index);
-            reindexTasks();
-            saveTasks();
+        Task t = taskAt(index);
+        if (t != null) {
+            deleteTaskById(t.getId());
         }
     }
 
     public void markDone(int index) {
-        if (index >= 0 && index < tasks.size()) {
-            tasks.get(index).markCompleted();
-            saveTasks();
+        Task t = taskAt(index);
+        if (t != null) {
+            markDoneById(t.getId());
         }
     }
 
     public void editTask(int index, String newDescription) {
-        if (index >= 0 && index < tasks.size()) {
-            tasks.get(index).setDescription(newDescription);
-            saveTasks();
+        Task t = taskAt(index);
+        if (t != null) {
+            editTaskById(t.getId(), newDescription);
+        }
+    }
+
+    public void updatePriority(int index, Priority priority) {
+        Task t = taskAt(index);
+        if (t != null) {
+            updatePriorityById(t.getId(), priority);
         }
     }
 
-    public void updatePriority(int index, String priority) {
-        if (index >= 0 && index < tasks.size()) {
-            tasks.get(index).setPriority(priority);
-            saveTasks();
+    // Adds copies of the given tasks under fresh ids, keeping their description, priority,
+    // dates, schedule and completion, and returns the added tasks in order.
+    public List<Task> addAll(Collection<? extends Task> templates) {
+        long start = System.nanoTime();
+        List<Task> added = new ArrayList<>(templates.size());
+        for (Task template : templates) {
+            Task t = new Task(nextId.getAndIncrement(), singleLine(template.getDescription()), template.isCompleted(),
+                    template.getPriority(), template.getCreatedDate(), template.getCompletedDate());
+            t.setSchedule(template.getSchedule());
+            added.add(t);
+        }
+        batch(m -> {
+            for (List<Task> group : groupByShard(added, Task::getId)) {
+                TaskShard shard = shardOf(group.get(0).getId());
+                Lock lock = shard.lock.writeLock();
+                lock.lock();
+                try {
+                    for (Task t : group) {
+                        appendAdded(t);
+                        shard.insert(t);
+                        recordUndo("Add Tasks", t.getId(), null, t.copy());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            for (Task t : added) {
+                publish(new TaskEvent(TaskEvent.Type.ADDED, t));
+            }
+        });
+        addAllTime.record(start);
+        return added;
+    }
+
+    // The bulk methods below skip unknown ids and return how many tasks they changed.
+    // Completing recurring tasks adds their next occurrences, undone together with them.
+    public int markDoneAll(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<Task> recurring = new ArrayList<>();
+        int[] done = new int[1];
+        batch(m -> {
+            done[0] = updateAll(ids, TaskEvent.Type.COMPLETED, "Mark Complete", null, (shard, t) -> {
+                noteRecurring(t, recurring);
+                journal.append("C," + t.getId() + "," + now);
+                shard.complete(t, now);
+            });
+            addNextOccurrences(recurring);
+        });
+        markDoneAllTime.record(start);
+        return done[0];
+    }
+
+    public int updatePriorityAll(Collection<Integer> ids, Priority priority) {
+        return updateAll(ids, TaskEvent.Type.UPDATED, "Change Priority", priorityAllTime, (shard, t) -> {
+            journal.append("P," + t.getId() + "," + priority.name());
+            shard.reprioritize(t, priority);
+        });
+    }
+
+    public int deleteAll(Collection<Integer> ids) {
+        return updateAll(ids, TaskEvent.Type.REMOVED, "Delete Tasks", deleteAllTime, (shard, t) -> {
+            journal.append("D," + t.getId());
+            shard.remove(t);
+        });
+    }
+
+    // Runs many mutations as one unit: their journal records are written together, the
+    // snapshot is considered once at the end and listeners get all its events in one call.
+    // Batches may nest; only the outermost one persists and notifies. Records of a batch
+    // reach the file only when it ends, so a crash midway loses the whole batch.
+    public void batch(Consumer<TaskManager> work) {
+        int[] depth = batchDepth.get();
+        depth[0]++;
+        journal.beginBatch();
+        try {
+            work.accept(this);
+        } finally {
+            journal.endBatch();
+            depth[0]--;
         }
+        if (depth[0] == 0 && !pendingEvents.get().isEmpty()) {
+            changed();
+        }
+    }
+
+    // Events are handed to the executor once per mutation or batch, e.g.
+    // SwingUtilities::invokeLater for the GUI or Runnable::run to receive them on the
+    // mutating thread.
+    public void addTaskListener(TaskListener listener, Executor executor) {
+        listeners.add(new Registration(listener, executor));
+    }
+
+    public void removeTaskListener(TaskListener listener) {
+        listeners.removeIf(r -> r.listener == listener);
     }
 
+    public Task getTaskById(int id) {
+        TaskShard shard = shardOf(id);
+        Lock lock = shard.lock.readLock();
+        lock.lock();
+        try {
+            return shard.get(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean deleteTaskById(int id) {
+        return update(id, TaskEvent.Type.REMOVED, "Delete Task", deleteTime, (shard, t) -> {
+            journal.append("D," + id);
+            shard.remove(t);
+        });
+    }
+
+    public boolean markDoneById(int id) {
+        long start = System.nanoTime();
+        List<Task> recurring = new ArrayList<>(1);
+        boolean[] done = new boolean[1];
+        batch(m -> {
+            done[0] = update(id, TaskEvent.Type.COMPLETED, "Mark Complete", null, (shard, t) -> {
+                LocalDateTime now = LocalDateTime.now();
+                noteRecurring(t, recurring);
+                journal.append("C," + id + "," + now);
+                shard.complete(t, now);
+            });
+            addNextOccurrences(recurring);
+        });
+        if (done[0]) {
+            markDoneTime.record(start);
+        }
+        return done[0];
+    }
+
+    public boolean editTaskById(int id, String newDescription) {
+        String desc = singleLine(newDescription);
+        return update(id, TaskEvent.Type.UPDATED, "Edit Task", editTime, (shard, t) -> {
+            journal.append("E," + id + "," + desc);
+            shard.describe(t, desc);
+        });
+    }
+
+    // The journal, tasks.txt and the server protocol are all line based, so a line break
+    // in a description would split its record in two. They become spaces instead.
+    static String singleLine(String desc) {
+        return desc.replace("\r\n", " ").replace('\n', ' ').replace('\r', ' ');
+    }
+
+    public boolean updatePriorityById(int id, Priority priority) {
+        return update(id, TaskEvent.Type.UPDATED, "Change Priority", priorityTime, (shard, t) -> {
+            journal.append("P," + id + "," + priority.name());
+            shard.reprioritize(t, priority);
+        });
+    }
+
+    // Sets a task's due date, reminder and recurrence, or with null clears them.
+    public boolean setSchedule(int id, TaskSchedule schedule) {
+        return update(id, TaskEvent.Type.UPDATED, "Set Schedule", scheduleTime, (shard, t) -> {
+            journal.append("S," + id + "," + (schedule != null ? schedule.encode() : ""));
+            t.setSchedule(schedule);
+        });
+    }
+
+    // Reminders are handed to the executor as they come due, on the scheduler's thread
+    // unless the executor moves them.
+    public void addReminderListener(ReminderListener listener, Executor executor) {
+        reminderListeners.add(new ReminderRegistration(listener, executor));
+    }
+
+    public void removeReminderListener(ReminderListener listener) {
+        reminderListeners.removeIf(r -> r.listener == listener);
+    }
+
+    // Pending tasks past their due date, in id order. Kept up to date by the scheduler,
+    // so this costs nothing like a scan of the tasks.
+    public List<Task> getOverdueTasks() {
+        return reminders.getOverdueTasks();
+    }
+
+    public int getOverdueCount() {
+        return reminders.getOverdueCount();
+    }
+
+    // Read-only and in id order. With one shard this is a live view; otherwise a
+    // consistent snapshot.
     public List<Task> getTasks() {
-        return tasks;
+        if (shards.length == 1) {
+            return shards[0].tasks();
+        }
+        lockAll(true);
+        try {
+            List<List<Task>> lists = new ArrayList<>(shards.length);
+            int total = 0;
+            for (TaskShard shard : shards) {
+                lists.add(shard.tasks());
+                total += shard.size();
+            }
+            return mergeById(lists, total);
+        } finally {
+            unlockAll(true);
+        }
+    }
+
+    // An id-ordered copy that stays valid while other threads keep mutating the manager.
+    public List<Task> getTasksSnapshot() {
+        long start = System.nanoTime();
+        lockAll(true);
+        try {
+            return new ArrayList<>(getTasks());
+        } finally {
+            unlockAll(true);
+            snapshotTime.record(start);
+        }
+    }
+
+    public List<Task> getFilteredTasksSnapshot(String filter) {
+        lockAll(true);
+        try {
+            return new ArrayList<>(getFilteredTasks(filter));
+        } finally {
+            unlockAll(true);
+        }
     }
 
+    // Filters are ALL, a status (PENDING/COMPLETED), a priority, or a status and priority
+    // joined with '+', e.g. "PENDING+HIGH". The result is a read-only view.
     public List<Task> getFilteredTasks(String filter) {
-        switch (filter) {
-            case "COMPLETED":
-                return tasks.stream().filter(Task::isCompleted).collect(Collectors.toList());
-            case "PENDING":
-                return tasks.stream().filter(t -> !t.isCompleted()).collect(Collectors.toList());
-            case "HIGH":
-                return tasks.stream().filter(t -> t.getPriority().equals("HIGH")).collect(Collectors.toList());
-            case "MEDIUM":
-                return tasks.stream().filter(t -> t.getPriority().equals("MEDIUM")).collect(Collectors.toList());
-            case "LOW":
-                return tasks.stream().filter(t -> t.getPriority().equals("LOW")).collect(Collectors.toList());
-            default:
-                return tasks;
+        return getFilteredTasks(filterStatus(filter), filterPriority(filter));
+    }
+
+    public static boolean matchesFilter(String filter, Task t) {
+        return matches(filterStatus(filter), filterPriority(filter), t);
+    }
+
+    // For checking many tasks against one filter, parsed once with filterStatus and
+    // filterPriority; null matches any value.
+    static boolean matches(Boolean completed, Priority priority, Task t) {
+        return (completed == null || completed == t.isCompleted())
+                && (priority == null || priority == t.getPriority());
+    }
+
+    // Ids of tasks whose description contains every word of the query, the last word
+    // matching as a prefix. Safe to call from a background thread. After a lazy load it
+    // waits until the search index is built.
+    public int[] search(String query, int limit) {
+        long start = System.nanoTime();
+        CompletableFuture<Void> building = indexing;
+        if (building != null) {
+            building.join();
+        }
+        try {
+            if (shards.length == 1) {
+                return shards[0].search(query, limit);
+            }
+            int[] merged = new int[0];
+            for (TaskShard shard : shards) {
+                int[] hits = shard.search(query, limit);
+                int[] both = Arrays.copyOf(merged, merged.length + hits.length);
+                System.arraycopy(hits, 0, both, merged.length, hits.length);
+                merged = both;
+            }
+            Arrays.sort(merged);
+            return Arrays.copyOf(merged, Math.min(limit, merged.length));
+        } finally {
+            searchTime.record(start);
         }
     }
 
+    // A null status or priority matches any value.
+    public List<Task> getFilteredTasks(Boolean completed, Priority priority) {
+        if (completed == null && priority == null) {
+            return getTasks();
+        }
+        long start = System.nanoTime();
+        lockAll(true);
+        try {
+            List<TaskBucket> selected = new ArrayList<>();
+            for (TaskShard shard : shards) {
+                shard.collectBuckets(completed, priority, selected);
+            }
+            return TaskBucket.merge(selected);
+        } finally {
+            unlockAll(true);
+            filterTime.record(start);
+        }
+    }
+
+    // One page of the tasks matching a status and priority (null matches any) in the given
+    // order, read from the ordered bucket indexes without sorting. For example the 20
+    // oldest pending HIGH tasks are getSortedTasks(false, Priority.HIGH, TaskOrder.CREATED,
+    // false, 0, 20). Cost grows with offset + limit, not with the number of tasks.
+    public List<Task> getSortedTasks(Boolean completed, Priority priority, TaskOrder order, boolean descending,
+            int offset, int limit) {
+        long start = System.nanoTime();
+        lockAll(true);
+        try {
+            List<TaskBucket> selected = new ArrayList<>();
+            for (TaskShard shard : shards) {
+                shard.collectBuckets(completed, priority, selected);
+            }
+            return TaskBucket.mergeSorted(selected, order, descending, offset, limit);
+        } finally {
+            unlockAll(true);
+            sortedTime.record(start);
+        }
+    }
+
+    public List<Task> getSortedTasks(String filter, TaskOrder order, boolean descending, int offset, int limit) {
+        return getSortedTasks(filterStatus(filter), filterPriority(filter), order, descending, offset, limit);
+    }
+
+    public List<Task> getTopTasks(String filter, TaskOrder order, boolean descending, int k) {
+        return getSortedTasks(filter, order, descending, 0, k);
+    }
+
     public void deleteCompletedTasks() {
-        tasks.removeIf(Task::isCompleted);
-        reindexTasks();
-        saveTasks();
+        long start = System.nanoTime();
+        lockAll(false);
+        try {
+            journal.append("X");
+            List<Task> removed = new ArrayList<>();
+            for (TaskShard shard : shards) {
+                removed.addAll(shard.removeCompleted());
+            }
+            for (Task t : removed) {
+                recordUndo("Clear Completed Tasks", t.getId(), t, null);
+            }
+            if (!removed.isEmpty()) {
+                int[] ids = removed.stream().mapToInt(Task::getId).sorted().toArray();
+                publish(new TaskEvent(ids));
+            }
+        } finally {
+            unlockAll(false);
+        }
+        changed();
+        clearTime.record(start);
+    }
+
+    // Moves tasks completed more than the given number of days ago to the archive and
+    // returns how many moved. They are written to the archive and forced to disk before
+    // they leave the hot set; listeners see one CLEARED event. Every shard is
+    // write-locked meanwhile, which is fine for an occasional sweep.
+    public int archiveCompleted(int olderThanDays) {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(olderThanDays);
+        int archived = 0;
+        lockAll(false);
+        try {
+            List<Task> old = new ArrayList<>();
+            for (TaskShard shard : shards) {
+                old.addAll(shard.completedBefore(cutoff));
+            }
+            if (old.isEmpty()) {
+                return 0;
+            }
+            old.sort(Comparator.comparingInt(Task::getId));
+            try {
+                archive.append(old);
+            } catch (IOException e) {
+                System.out.println("Error archiving tasks: " + e.getMessage());
+                return 0;
+            }
+            journal.beginBatch();
+            try {
+                for (Task t : old) {
+                    journal.append("D," + t.getId());
+                }
+            } finally {
+                journal.endBatch();
+            }
+            for (List<Task> group : groupByShard(old, Task::getId)) {
+                shardOf(group.get(0).getId()).removeAll(group);
+            }
+            publish(new TaskEvent(old.stream().mapToInt(Task::getId).toArray()));
+            archived = old.size();
+            clearHistory();
+        } finally {
+            unlockAll(false);
+        }
+        changed();
+        archiveTime.record(start);
+        metrics.count("archive.tasksArchived", archived);
+        return archived;
+    }
+
+    // Archived tasks matching a search query, in id order; see TaskArchive.search. This
+    // reads the whole archive, so call it off the EDT.
+    public List<Task> searchArchive(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            return archive.search(query, limit);
+        } catch (IOException e) {
+            System.out.println("Error searching task archive: " + e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            archiveSearchTime.record(start);
+        }
+    }
+
+    // Moves archived tasks back into the hot set under their old ids and returns them.
+    // The journal is flushed before the archive tombstones them, so a crash in between
+    // leaves a task in both places, never in neither; the next start keeps the hot copy.
+    public List<Task> restoreFromArchive(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        List<Task> restored;
+        lockAll(false);
+        try {
+            try {
+                restored = archive.get(ids);
+            } catch (IOException e) {
+                System.out.println("Error restoring tasks: " + e.getMessage());
+                return new ArrayList<>();
+            }
+            journal.beginBatch();
+            try {
+                for (Task t : restored) {
+                    appendAdded(t);
+                    shardOf(t.getId()).insert(t);
+                    publish(new TaskEvent(TaskEvent.Type.ADDED, t));
+                }
+            } finally {
+                journal.endBatch();
+            }
+            journal.flush();
+            List<Integer> restoredIds = new ArrayList<>(restored.size());
+            for (Task t : restored) {
+                restoredIds.add(t.getId());
+            }
+            try {
+                archive.markRestored(restoredIds);
+            } catch (IOException e) {
+                System.out.println("Error restoring tasks: " + e.getMessage());
+            }
+            clearHistory();
+        } finally {
+            unlockAll(false);
+        }
+        changed();
+        restoreTime.record(start);
+        return restored;
+    }
+
+    // Reverts the most recent change (a single mutation or a whole batch) and returns
+    // false when there is nothing to undo. A change over the history's memory budget
+    // can't be undone, and neither can anything before it.
+    public boolean undo() {
+        return applyHistory(history.popUndo(), true, undoTime);
+    }
+
+    public boolean redo() {
+        return applyHistory(history.popRedo(), false, redoTime);
+    }
+
+    // Names of the changes undo() and redo() would apply, or null.
+    public String getUndoLabel() {
+        return history.getUndoLabel();
+    }
+
+    public String getRedoLabel() {
+        return history.getRedoLabel();
+    }
+
+    public int getArchivedCount() {
+        return archive.size();
     }
 
     public long getCompletedCount() {
-        return tasks.stream().filter(Task::isCompleted).count();
+        long total = 0;
+        for (TaskShard shard : shards) {
+            total += read(shard, shard::completedCount);
+        }
+        return total;
     }
 
     public long getPendingCount() {
-        return tasks.stream().filter(t -> !t.isCompleted()).count();
+        long total = 0;
+        for (TaskShard shard : shards) {
+            total += read(shard, () -> shard.size() - shard.completedCount());
+        }
+        return total;
     }
 
-    private void reindexTasks() {
-        for (int i = 0; i < tasks.size(); i++) {
-            tasks.get(i).setId(i + 1);
+    public long getCount(boolean completed, Priority priority) {
+        long total = 0;
+        for (TaskShard shard : shards) {
+            total += read(shard, () -> shard.count(completed, priority));
         }
+        return total;
     }
 
+    public long getPriorityCount(Priority priority) {
+        return getCount(true, priority) + getCount(false, priority);
+    }
+
+    // Analytics over creation and completion dates. Periods are bucketDays long (1 for
+    // daily, 7 for weekly) and start on from; both ends are inclusive. The aggregates are
+    // kept per day as tasks change, so these cost O(days in range), not O(tasks).
+    // Archived tasks are included.
+    public long[] getCompletionsPerPeriod(LocalDate from, LocalDate to, int bucketDays) {
+        return queryAnalytics(a -> TaskAnalytics.countPerPeriod(a, from, to, bucketDays, true));
+    }
+
+    public long[] getCreationsPerPeriod(LocalDate from, LocalDate to, int bucketDays) {
+        return queryAnalytics(a -> TaskAnalytics.countPerPeriod(a, from, to, bucketDays, false));
+    }
+
+    // Pending tasks at the end of each period.
+    public long[] getBacklogPerPeriod(LocalDate from, LocalDate to, int bucketDays) {
+        return queryAnalytics(a -> TaskAnalytics.backlogPerPeriod(a, from, to, bucketDays));
+    }
+
+    // Time from creation to completion of the tasks completed between from and to, for one
+    // priority or, with null, all of them.
+    public LatencyHistogram getCompletionLatency(LocalDate from, LocalDate to, Priority priority) {
+        return queryAnalytics(a -> TaskAnalytics.latency(a, from, to, priority));
+    }
+
+    // Recounts everything from scratch and fails if the live tallies have drifted.
+    public void verifyCounters() {
+        lockAll(true);
+        try {
+            for (TaskShard shard : shards) {
+                shard.verifyCounters();
+            }
+        } finally {
+            unlockAll(true);
+        }
+    }
+
+    // The status part of a filter string: true, false, or null for any.
+    static Boolean filterStatus(String filter) {
+        Boolean completed = null;
+        for (String part : filter.split("\\+")) {
+            if (part.equals("COMPLETED")) {
+                completed = true;
+            } else if (part.equals("PENDING")) {
+                completed = false;
+            }
+        }
+        return completed;
+    }
+
+    static Priority filterPriority(String filter) {
+        Priority priority = null;
+        for (String part : filter.split("\\+")) {
+            if (!part.isEmpty() && !part.equals("COMPLETED") && !part.equals("PENDING") && !part.equals("ALL")) {
+                priority = Priority.parse(part);
+            }
+        }
+        return priority;
+    }
+
+    private <T> T queryAnalytics(Function<List<TaskAnalytics>, T> query) {
+        long start = System.nanoTime();
+        lockAll(true);
+        try {
+            List<TaskAnalytics> all = new ArrayList<>(shards.length + 1);
+            for (TaskShard shard : shards) {
+                all.add(shard.analytics());
+            }
+            all.add(archive.analytics());
+            return query.apply(all);
+        } finally {
+            unlockAll(true);
+            analyticsTime.record(start);
+        }
+    }
+
+    private TaskShard shardOf(int id) {
+        return shards[Math.floorMod(id, shards.length)];
+    }
+
+    private Task taskAt(int index) {
+        List<Task> tasks = getTasks();
+        return index >= 0 && index < tasks.size() ? tasks.get(index) : null;
+    }
+
+    private boolean update(int id, TaskEvent.Type type, String label, OperationStats time,
+            BiConsumer<TaskShard, Task> change) {
+        long start = System.nanoTime();
+        TaskShard shard = shardOf(id);
+        Lock lock = shard.lock.writeLock();
+        lock.lock();
+        try {
+            Task t = shard.get(id);
+            if (t == null) {
+                return false;
+            }
+            Task before = type == TaskEvent.Type.REMOVED ? t : t.copy();
+            change.accept(shard, t);
+            recordUndo(label, id, before, type == TaskEvent.Type.REMOVED ? null : t.copy());
+            publish(new TaskEvent(type, t));
+        } finally {
+            lock.unlock();
+        }
+        changed();
+        if (time != null) {
+            time.record(start);
+        }
+        return true;
+    }
+
+    private int updateAll(Collection<Integer> ids, TaskEvent.Type type, String label, OperationStats time,
+            BiConsumer<TaskShard, Task> change) {
+        long start = System.nanoTime();
+        int[] changedCount = new int[1];
+        batch(m -> {
+            for (List<Integer> group : groupByShard(ids, id -> id)) {
+                TaskShard shard = shardOf(group.get(0));
+                Lock lock = shard.lock.writeLock();
+                lock.lock();
+                try {
+                    for (int id : group) {
+                        Task t = shard.get(id);
+                        if (t != null) {
+                            Task before = type == TaskEvent.Type.REMOVED ? t : t.copy();
+                            change.accept(shard, t);
+                            recordUndo(label, id, before, type == TaskEvent.Type.REMOVED ? null : t.copy());
+                            publish(new TaskEvent(type, t));
+                            changedCount[0]++;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+        if (time != null) {
+            time.record(start);
+        }
+        return changedCount[0];
+    }
+
+    // Splits items by the shard of their id, so each shard lock is taken once per bulk call.
+    private <T> List<List<T>> groupByShard(Collection<T> items, ToIntFunction<T> id) {
+        if (shards.length == 1) {
+            return items.isEmpty() ? Collections.emptyList() : Collections.singletonList(new ArrayList<>(items));
+        }
+        List<List<T>> groups = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            groups.get(Math.floorMod(id.applyAsInt(item), shards.length)).add(item);
+        }
+        groups.removeIf(List::isEmpty);
+        return groups;
+    }
+
+    // Journal records that recreate t, completion included.
+    private void appendAdded(Task t) {
+        if (!journal.isPersistent()) {
+            return;
+        }
+        journal.append("A," + t.getId() + "," + t.getCreatedDate() + "," + t.getPriority().name()
+                + "," + t.getDescription());
+        if (t.getSchedule() != null) {
+            journal.append("S," + t.getId() + "," + t.getSchedule().encode());
+        }
+        if (t.isCompleted()) {
+            journal.append("C," + t.getId() + "," + t.getCompletedDate());
+        }
+    }
+
+    // Called under the shard lock before t is completed.
+    private static void noteRecurring(Task t, List<Task> recurring) {
+        TaskSchedule schedule = t.getSchedule();
+        if (!t.isCompleted() && schedule != null && schedule.isRecurring()) {
+            recurring.add(t);
+        }
+    }
+
+    // Inside the caller's batch, so completing a recurring task and adding its next
+    // occurrence are one undo step.
+    private void addNextOccurrences(List<Task> completed) {
+        for (Task t : completed) {
+            addTask(t.getDescription(), t.getPriority(), t.getSchedule().next(t.getCompletedDate()));
+        }
+    }
+
+    private void deliverReminders(List<Reminder> due) {
+        List<Reminder> delivered = Collections.unmodifiableList(due);
+        for (ReminderRegistration r : reminderListeners) {
+            r.executor.execute(() -> r.listener.remindersDue(delivered));
+        }
+    }
+
+    // Added to this thread's pending undo entry, which the outermost batch commits as
+    // one step; the first mutation names it. Removed tasks are kept as they are, since
+    // nothing changes them once they are out of the shards.
+    private void recordUndo(String label, int id, Task before, Task after) {
+        TaskHistory.Entry entry = pendingUndo.get();
+        if (entry == null) {
+            entry = new TaskHistory.Entry(label);
+            pendingUndo.set(entry);
+        }
+        history.record(entry, id, before, after);
+    }
+
+    // Archiving and restoring move tasks where undo can't follow them.
+    private void clearHistory() {
+        pendingUndo.remove();
+        history.clear();
+    }
+
+    private boolean applyHistory(TaskHistory.Entry entry, boolean undo, OperationStats time) {
+        if (entry == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        putStates(TaskHistory.targets(entry.changes, undo), undo);
+        changed();
+        time.record(start);
+        return true;
+    }
+
+    // Applies changes made elsewhere, such as those a TaskServer pushes to its clients,
+    // without recording them for undo: each task takes its change's after state.
+    void applyChanges(List<TaskHistory.Change> changes) {
+        putStates(TaskHistory.targets(changes, false), false);
+        changed();
+    }
+
+    // Puts every target task into its before (or after) state: each current copy is
+    // removed and a fresh copy of the target inserted, with one merge per shard, so
+    // undoing a large clear costs about as much as the clear did. The whole change is
+    // journaled as one U record rather than a D, A and C record per task.
+    private void putStates(List<TaskHistory.Change> targets, boolean before) {
+        List<List<Task>> removed = perShard();
+        List<List<Task>> inserted = perShard();
+        lockAll(false);
+        try {
+            for (TaskHistory.Change c : targets) {
+                int slot = Math.floorMod(c.id, shards.length);
+                Task current = shards[slot].get(c.id);
+                Task target = before ? c.before : c.after;
+                if (current != null) {
+                    removed.get(slot).add(current);
+                    publish(new TaskEvent(TaskEvent.Type.REMOVED, current));
+                }
+                if (target != null) {
+                    Task t = target.copy();
+                    inserted.get(slot).add(t);
+                    publish(new TaskEvent(TaskEvent.Type.ADDED, t));
+                }
+            }
+            if (journal.isPersistent() && !targets.isEmpty()) {
+                journal.append(statesRecord(removed, inserted));
+            }
+            replaceAll(removed, inserted);
+        } finally {
+            unlockAll(false);
+        }
+    }
+
+    // "U,<ids>,<rows>": the ids whose current copies go, separated by spaces, then each
+    // task put in their place as a tasks.txt row prefixed with its length and a colon,
+    // so descriptions need no escaping.
+    private static String statesRecord(List<List<Task>> removed, List<List<Task>> inserted) {
+        StringBuilder record = new StringBuilder("U,");
+        String separator = "";
+        for (List<Task> group : removed) {
+            for (Task t : group) {
+                record.append(separator).append(t.getId());
+                separator = " ";
+            }
+        }
+        record.append(',');
+        for (List<Task> group : inserted) {
+            for (Task t : group) {
+                String row = TextTaskFormat.toRow(t);
+                record.append(row.length()).append(':').append(row);
+            }
+        }
+        return record.toString();
+    }
+
+    private void replayStates(String record) {
+        List<List<Task>> removed = perShard();
+        List<List<Task>> inserted = perShard();
+        int idsEnd = record.indexOf(',', 2);
+        if (idsEnd > 2) {
+            for (String field : record.substring(2, idsEnd).split(" ")) {
+                int id = Integer.parseInt(field);
+                Task t = shardOf(id).get(id);
+                if (t != null) {
+                    removed.get(Math.floorMod(id, shards.length)).add(t);
+                }
+            }
+        }
+        int pos = idsEnd + 1;
+        while (pos < record.length()) {
+            int colon = record.indexOf(':', pos);
+            int end = colon + 1 + Integer.parseInt(record.substring(pos, colon));
+            Task t = TextTaskFormat.parseRow(record.substring(colon + 1, end));
+            if (t != null) {
+                inserted.get(Math.floorMod(t.getId(), shards.length)).add(t);
+                nextId.accumulateAndGet(t.getId() + 1, Math::max);
+            }
+            pos = end;
+        }
+        for (List<Task> group : inserted) {
+            group.sort(Comparator.comparingInt(Task::getId));
+        }
+        replaceAll(removed, inserted);
+    }
+
+    // Removes and then inserts tasks, grouped by shard; inserted tasks are in id order.
+    // A few tasks, such as one pushed edit, are cheaper to move one by one than to merge.
+    private void replaceAll(List<List<Task>> removed, List<List<Task>> inserted) {
+        for (int i = 0; i < shards.length; i++) {
+            if (removed.get(i).size() + inserted.get(i).size() <= SMALL_CHANGE) {
+                for (Task t : removed.get(i)) {
+                    shards[i].remove(t);
+                }
+                for (Task t : inserted.get(i)) {
+                    shards[i].insert(t);
+                }
+            } else {
+                shards[i].removeAll(removed.get(i));
+                shards[i].insertAll(inserted.get(i));
+            }
+        }
+    }
+
+    private List<List<Task>> perShard() {
+        List<List<Task>> groups = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            groups.add(new ArrayList<>());
+        }
+        return groups;
+    }
+
+    // Queued until the current mutation or outermost batch completes.
+    private void publish(TaskEvent event) {
+        pendingEvents.get().add(event);
+    }
+
+    // Inside a batch this does nothing; otherwise it persists and delivers the events
+    // gathered on this thread.
+    private void changed() {
+        if (batchDepth.get()[0] > 0) {
+            return;
+        }
+        TaskHistory.Entry entry = pendingUndo.get();
+        if (entry != null) {
+            pendingUndo.remove();
+            history.commit(entry);
+        }
+        saveTasks();
+        deliverEvents();
+    }
+
+    private void deliverEvents() {
+        List<TaskEvent> events = pendingEvents.get();
+        if (events.isEmpty()) {
+            return;
+        }
+        pendingEvents.set(new ArrayList<>());
+        List<TaskEvent> delivered = Collections.unmodifiableList(events);
+        for (Registration r : listeners) {
+            r.executor.execute(() -> r.listener.tasksChanged(delivered));
+        }
+    }
+
+    private static int read(TaskShard shard, IntSupplier value) {
+        Lock lock = shard.lock.readLock();
+        lock.lock();
+        try {
+            return value.getAsInt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Always in shard order, so whole-manager operations cannot deadlock each other.
+    private void lockAll(boolean read) {
+        for (TaskShard shard : shards) {
+            (read ? shard.lock.readLock() : shard.lock.writeLock()).lock();
+        }
+    }
+
+    private void unlockAll(boolean read) {
+        for (int i = shards.length - 1; i >= 0; i--) {
+            (read ? shards[i].lock.readLock() : shards[i].lock.writeLock()).unlock();
+        }
+    }
+
+    private static List<Task> mergeById(List<List<Task>> lists, int total) {
+        List<Task> merged = new ArrayList<>(total);
+        int[] heads = new int[lists.size()];
+        while (merged.size() < total) {
+            int pick = -1;
+            for (int i = 0; i < heads.length; i++) {
+                List<Task> list = lists.get(i);
+                if (heads[i] < list.size() && (pick < 0
+                        || list.get(heads[i]).getId() < lists.get(pick).get(heads[pick]).getId())) {
+                    pick = i;
+                }
+            }
+            merged.add(lists.get(pick).get(heads[pick]++));
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    public void flush() {
+        journal.flush();
+    }
+
+    public void close() {
+        if (loader != null) {
+            loaded.join();
+        }
+        reminders.close();
+        journal.close();
+        metrics.close();
+    }
+
+    public TaskMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getPersistenceQueueDepth() {
+        return journal.getQueueDepth();
+    }
+
+    public double getLastFlushMillis() {
+        return journal.getLastFlushMillis();
+    }
+
+    public double getMaxFlushMillis() {
+        return journal.getMaxFlushMillis();
+    }
+
+    public long getFlushCount() {
+        return journal.getFlushCount();
+    }
+
+    // Mutations are already in the journal; the full snapshot is only rewritten once the
+    // journal grows past its threshold, and then on the journal's background thread.
+    // Every shard is read-locked while the copy is taken, so no record can be appended
+    // between the copy and the journal rotation.
     private void saveTasks() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(FILE_PATH))) {
-            for (Task t : tasks) {
-                bw.write(t.getId() + "," +
-                        t.getDescription() + "," +
-                        t.isCompleted() + "," +
-                        t.getPriority() + "," +
-                        t.getCreatedDate() + "," +
-                        (t.getCompletedDate() != null ? t.getCompletedDate() : "") + "\n");
+        if (!journal.needsCompaction()) {
+            return;
+        }
+        long start = System.nanoTime();
+        lockAll(true);
+        try {
+            if (journal.needsCompaction()) {
+                List<Task> snapshot = new ArrayList<>();
+                for (Task t : getTasks()) {
+                    snapshot.add(t.copy());
+                }
+                journal.compact(snapshot);
+            }
+        } finally {
+            unlockAll(true);
+            saveTime.record(start);
+        }
+    }
+
+    // A task found both hot and archived was caught by a crash midway through archiving
+    // or restoring; the hot copy wins and the archived one is tombstoned.
+    // With progress, loads as loadInBackground() describes, which leaves every shard
+    // write-locked from the first journal record to the end.
+    // A lazy load leaves the search index empty, since indexing would decode every
+    // description; indexInBackground() fills it once the tasks are in.
+    private void loadTasks(IntConsumer progress) {
+        long start = System.nanoTime();
+        LoadChunks chunks = progress != null ? new LoadChunks() : null;
+        CompletableFuture<Void> indexed = indexing;
+        if (indexed == null && journal.isLazy()) {
+            indexed = new CompletableFuture<>();
+            indexing = indexed;
+        }
+        if (indexed != null) {
+            for (TaskShard shard : shards) {
+                shard.setIndexing(false);
             }
-        } catch (IOException e) {
-            System.out.println("Error saving tasks: " + e.getMessage());
         }
+        try {
+            if (chunks == null) {
+                journal.load(this::insert, this::replayRecord);
+            } else {
+                journal.load(chunks::add, chunks::replay, progress);
+                chunks.lock();
+            }
+            nextId.accumulateAndGet(archive.maxId() + 1, Math::max);
+            for (TaskShard shard : shards) {
+                for (Task t : shard.tasks()) {
+                    if (t.getSchedule() != null) {
+                        reminders.update(t);
+                    }
+                }
+            }
+            if (archive.size() > 0) {
+                List<Integer> both = new ArrayList<>();
+                for (TaskShard shard : shards) {
+                    for (Task t : shard.tasks()) {
+                        if (archive.contains(t.getId())) {
+                            both.add(t.getId());
+                        }
+                    }
+                }
+                try {
+                    archive.markRestored(both);
+                } catch (IOException e) {
+                    System.out.println("Error loading task archive: " + e.getMessage());
+                }
+            }
+        } finally {
+            for (TaskShard shard : shards) {
+                shard.setIndexing(true);
+            }
+            if (chunks != null && chunks.locked) {
+                unlockAll(false);
+            }
+            if (indexed != null) {
+                indexInBackground(indexed);
+            }
+        }
+        loadTime.record(start);
+        saveTasks();
+    }
+
+    // Adds the loaded tasks to the search index on a "task-indexer" thread, a chunk at a
+    // time under the shard's read lock, so writers wait for one chunk at most. A task
+    // changed or removed before its chunk is reached has already updated the index, and
+    // one added since then is indexed twice, which changes nothing.
+    private void indexInBackground(CompletableFuture<Void> done) {
+        Thread indexer = new Thread(() -> {
+            try {
+                for (TaskShard shard : shards) {
+                    int after = 0;
+                    while (after >= 0) {
+                        Lock lock = shard.lock.readLock();
+                        lock.lock();
+                        try {
+                            after = shard.indexAfter(after, LOAD_CHUNK);
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Error indexing tasks: " + e.getMessage());
+            } finally {
+                indexing = null;
+                done.complete(null);
+            }
+        }, "task-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
     }
 
-    private void loadTasks() {
-        try (BufferedReader br = new BufferedReader(new FileReader(FILE_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 5) {
-                    LocalDateTime createdDate = LocalDateTime.parse(parts[4]);
-                    LocalDateTime completedDate = parts.length > 5 && !parts[5].isEmpty()
-                            ? LocalDateTime.parse(parts[5])
-                            : null;
+    // Feeds a background load into the shards while other threads read them.
+    private class LoadChunks {
+        private List<Task> chunk = new ArrayList<>();
+        private boolean locked;
 
-                    Task t = new Task(Integer.parseInt(parts[0]), parts[1],
-                            Boolean.parseBoolean(parts[2]), parts[3],
-                            createdDate, completedDate);
-                    tasks.add(t);
+        void add(Task t) {
+            chunk.add(t);
+            if (chunk.size() == LOAD_CHUNK) {
+                flush();
+            }
+        }
+
+        // Journal records may touch any task, so they are replayed with every shard locked.
+        void replay(String record) {
+            lock();
+            replayRecord(record);
+        }
+
+        void lock() {
+            if (!locked) {
+                flush();
+                lockAll(false);
+                locked = true;
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            lockAll(false);
+            try {
+                for (Task t : chunk) {
+                    insert(t);
                 }
+                // One event per chunk, so listeners can take it in one go.
+                publish(new TaskEvent(chunk));
+            } finally {
+                unlockAll(false);
             }
-        } catch (IOException ignored) {
+            chunk = new ArrayList<>();
+            // Not changed(): nothing may be saved until the whole snapshot is in.
+            deliverEvents();
+        }
+    }
+
+    private void insert(Task t) {
+        shardOf(t.getId()).insert(t);
+        nextId.accumulateAndGet(t.getId() + 1, Math::max);
+    }
+
+    private void replayRecord(String record) {
+        if (record.startsWith("U,")) {
+            replayStates(record);
+            return;
+        }
+        String[] parts = record.split(",", 3);
+        TaskShard shard = parts.length > 1 ? shardOf(Integer.parseInt(parts[1])) : null;
+        Task t;
+        switch (parts[0]) {
+            case "A":
+                String[] fields = record.split(",", 5);
+                insert(new Task(Integer.parseInt(fields[1]), fields[4], false, Priority.parse(fields[3]),
+                        LocalDateTime.parse(fields[2]), null));
+                break;
+            case "C":
+                t = shard.get(Integer.parseInt(parts[1]));
+                if (t != null) {
+                    shard.complete(t, LocalDateTime.parse(parts[2]));
+                }
+                break;
+            case "E":
+                t = shard.get(Integer.parseInt(parts[1]));
+                if (t != null) {
+                    shard.describe(t, parts[2]);
+                }
+                break;
+            case "P":
+                t = shard.get(Integer.parseInt(parts[1]));
+                if (t != null) {
+                    shard.reprioritize(t, Priority.parse(parts[2]));
+                }
+                break;
+            case "S":
+                t = shard.get(Integer.parseInt(parts[1]));
+                if (t != null) {
+                    t.setSchedule(parts[2].isEmpty() ? null : TaskSchedule.decode(parts[2]));
+                }
+                break;
+            case "D":
+                t = shard.get(Integer.parseInt(parts[1]));
+                if (t != null) {
+                    shard.remove(t);
+                }
+                break;
+            case "X":
+                for (TaskShard s : shards) {
+                    s.removeCompleted();
+                }
+                break;
         }
     }
 }
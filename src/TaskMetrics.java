@@ -0,0 +1,235 @@
+import javax.management.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Operation latencies, counters and gauges for one TaskManager and its GUI. Readable as
+// a text report, written to a file on demand or on a schedule, and over JMX: each
+// operation is its own MBean under tasktracker:type=Operation, and this class is a
+// dynamic MBean whose attributes are the counters and gauges.
+public class TaskMetrics implements DynamicMBean {
+    private final Map<String, OperationStats> operations = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, String> notes = new ConcurrentSkipListMap<>();
+    private volatile String domain;
+    private ScheduledExecutorService dumper;
+    private Path dumpPath;
+
+    public OperationStats operation(String name) {
+        return operations.computeIfAbsent(name, n -> {
+            OperationStats stats = new OperationStats(n);
+            if (domain != null) {
+                register(stats, operationName(n));
+            }
+            return stats;
+        });
+    }
+
+    public void count(String name, long delta) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).add(delta);
+    }
+
+    public long getCounter(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // A value read whenever metrics are reported, such as the number of tasks.
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // Free text kept for the report, such as where the last EDT stall was.
+    public void note(String name, String text) {
+        notes.put(name, text);
+    }
+
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("TaskTracker metrics at ").append(LocalDateTime.now()).append('\n');
+        out.append(String.format("%n%-28s %10s %10s %10s %10s %10s %10s%n",
+                "operation (micros)", "count", "mean", "p50", "p90", "p99", "max"));
+        for (OperationStats stats : operations.values()) {
+            LatencyHistogram h = stats.snapshot();
+            if (h.isEmpty()) {
+                continue;
+            }
+            out.append(String.format("%-28s %10d %10.1f %10.0f %10.0f %10.0f %10d%n", stats.getName(),
+                    h.getCount(), h.getMean(), h.getPercentile(0.5), h.getPercentile(0.9),
+                    h.getPercentile(0.99), stats.getMaxMicros()));
+        }
+        out.append('\n');
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            out.append(String.format("%-28s %16d%n", e.getKey(), e.getValue().sum()));
+        }
+        for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) {
+            out.append(String.format("%-28s %16d%n", e.getKey(), e.getValue().getAsLong()));
+        }
+        for (Map.Entry<String, String> e : notes.entrySet()) {
+            out.append('\n').append(e.getKey()).append(":\n").append(e.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Written to a temporary file first, so readers never see half a report.
+    public void dump(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, report().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Rewrites path every period on a daemon thread, and once more from close().
+    public synchronized void dumpEvery(Path path, long seconds) {
+        dumpPath = path;
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "task-metrics-dump");
+                t.setDaemon(true);
+                return t;
+            });
+            dumper.scheduleWithFixedDelay(this::dumpQuietly, seconds, seconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+            dumpQuietly();
+        }
+    }
+
+    // Registers this and every operation with the platform MBean server. A second manager
+    // in the same JVM keeps its metrics to itself rather than replacing the first's.
+    public void registerMBeans(String domain) {
+        try {
+            ObjectName name = new ObjectName(domain + ":type=TaskManager");
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                return;
+            }
+            this.domain = domain;
+            register(this, name);
+            for (OperationStats stats : operations.values()) {
+                register(stats, operationName(stats.getName()));
+            }
+        } catch (MalformedObjectNameException e) {
+            System.out.println("Error registering metrics: " + e.getMessage());
+        }
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump(dumpPath);
+        } catch (IOException e) {
+            System.out.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    private ObjectName operationName(String operation) {
+        try {
+            return new ObjectName(domain + ":type=Operation,name=" + ObjectName.quote(operation));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static void register(Object mbean, ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+        } catch (JMException e) {
+            System.out.println("Error registering metrics: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongAdder counter = counters.get(attribute);
+        if (counter != null) {
+            return counter.sum();
+        }
+        LongSupplier gauge = gauges.get(attribute);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String a : attributes) {
+            try {
+                list.add(new Attribute(a, getAttribute(a)));
+            } catch (AttributeNotFoundException ignored) {
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        switch (actionName) {
+            case "report":
+                return report();
+            case "dump":
+                try {
+                    dump(Path.of((String) params[0]));
+                    return null;
+                } catch (IOException e) {
+                    throw new MBeanException(e);
+                }
+            case "reset":
+                operations.values().forEach(OperationStats::reset);
+                return null;
+            default:
+                throw new MBeanException(new UnsupportedOperationException(actionName));
+        }
+    }
+
+    // Rebuilt on every call, since counters and gauges appear as they are first used.
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : counters.keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", "Counter", true, false, false));
+        }
+        for (String name : gauges.keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", "Gauge", true, false, false));
+        }
+        MBeanOperationInfo[] ops = {
+                new MBeanOperationInfo("report", "Metrics as text", new MBeanParameterInfo[0],
+                        "java.lang.String", MBeanOperationInfo.INFO),
+                new MBeanOperationInfo("dump", "Write the report to a file", new MBeanParameterInfo[] {
+                        new MBeanParameterInfo("path", "java.lang.String", "File to write") },
+                        "void", MBeanOperationInfo.ACTION),
+                new MBeanOperationInfo("reset", "Clear the operation latencies", new MBeanParameterInfo[0],
+                        "void", MBeanOperationInfo.ACTION)
+        };
+        return new MBeanInfo(getClass().getName(), "TaskTracker counters and gauges",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, ops, null);
+    }
+}
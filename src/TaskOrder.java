@@ -0,0 +1,43 @@
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+// Orderings TaskManager can list tasks in without sorting them. Ties always fall back to
+// creation time and then id, so every ordering is total.
+public enum TaskOrder {
+    // Order added.
+    ID,
+    CREATED,
+    // Completed tasks by completion time; pending tasks follow, by creation time, in
+    // either direction.
+    COMPLETED,
+    // HIGH, MEDIUM, LOW, then unrecognised priorities, each by creation time.
+    PRIORITY;
+
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+    private static final Comparator<Task> BY_CREATED =
+            Comparator.comparing(Task::getCreatedDate).thenComparingInt(Task::getId);
+
+    public Comparator<Task> comparator(boolean descending) {
+        switch (this) {
+            case CREATED:
+                return descending ? BY_CREATED.reversed() : BY_CREATED;
+            case COMPLETED:
+                Comparator<Task> byCompleted = Comparator.comparing(TaskOrder::completedOrCreated)
+                        .thenComparing(BY_CREATED);
+                return Comparator.<Task>comparingInt(t -> t.isCompleted() ? 0 : 1)
+                        .thenComparing(descending ? byCompleted.reversed() : byCompleted);
+            case PRIORITY:
+                Comparator<Task> byPriority = Comparator.<Task>comparingInt(t -> t.getPriority().ordinal())
+                        .thenComparing(BY_CREATED);
+                return descending ? byPriority.reversed() : byPriority;
+            default:
+                return descending ? BY_ID.reversed() : BY_ID;
+        }
+    }
+
+    // Pending tasks compare by creation time alone, and so does a completed task loaded
+    // without a completion date.
+    private static LocalDateTime completedOrCreated(Task t) {
+        return t.isCompleted() && t.getCompletedDate() != null ? t.getCompletedDate() : t.getCreatedDate();
+    }
+}
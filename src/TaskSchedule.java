@@ -0,0 +1,87 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// When a task is due, when to be reminded of it and whether it recurs. Any part may be
+// absent. Immutable: changing a task's schedule replaces it, so holders can compare by
+// reference. A later occurrence of a monthly or yearly task also keeps the date its
+// series started on, which the next occurrences are counted from.
+public class TaskSchedule {
+    private final LocalDateTime due;
+    private final LocalDateTime remindAt;
+    private final Recurrence recurrence;
+    private final LocalDateTime first;
+
+    public TaskSchedule(LocalDateTime due, LocalDateTime remindAt, Recurrence recurrence) {
+        this(due, remindAt, recurrence, null);
+    }
+
+    // first is null, or dropped, when this is the series' first occurrence.
+    public TaskSchedule(LocalDateTime due, LocalDateTime remindAt, Recurrence recurrence, LocalDateTime first) {
+        this.due = due;
+        this.remindAt = remindAt;
+        this.recurrence = recurrence != null ? recurrence : Recurrence.NONE;
+        LocalDateTime base = due != null ? due : remindAt;
+        this.first = first != null && base != null && this.recurrence.countsFromFirst() && !first.equals(base)
+                ? first : null;
+    }
+
+    public LocalDateTime getDue() {
+        return due;
+    }
+
+    public LocalDateTime getRemindAt() {
+        return remindAt;
+    }
+
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    // Null unless this occurrence came after the series' first one.
+    public LocalDateTime getFirst() {
+        return first;
+    }
+
+    public boolean isRecurring() {
+        return recurrence != Recurrence.NONE;
+    }
+
+    public boolean isOverdue(LocalDateTime now) {
+        return due != null && due.isBefore(now);
+    }
+
+    // The schedule of the occurrence after this one, for a task completed at the given
+    // time: the due date moves on by the recurrence until it is after that time, and the
+    // reminder keeps its distance from the due date. Without a due date the next one is
+    // counted from the completion.
+    public TaskSchedule next(LocalDateTime completedAt) {
+        if (!isRecurring()) {
+            return null;
+        }
+        LocalDateTime base = due != null ? due : remindAt != null ? remindAt : completedAt;
+        LocalDateTime start = first != null ? first : base;
+        LocalDateTime next = recurrence.next(start, base);
+        while (!next.isAfter(completedAt)) {
+            next = recurrence.next(start, next);
+        }
+        Duration shift = Duration.between(base, next);
+        return new TaskSchedule(due != null ? next : null, remindAt != null ? remindAt.plus(shift) : null,
+                recurrence, start);
+    }
+
+    // "due;remind;RECURRENCE", with empty fields for absent dates, and ";first" after it
+    // when there is one; the form used in tasks.txt rows, the journal and the server
+    // protocol.
+    public String encode() {
+        return (due != null ? due.toString() : "") + ";" + (remindAt != null ? remindAt.toString() : "") + ";"
+                + recurrence.name() + (first != null ? ";" + first : "");
+    }
+
+    public static TaskSchedule decode(String text) {
+        String[] f = text.split(";", -1);
+        LocalDateTime due = f[0].isEmpty() ? null : LocalDateTime.parse(f[0]);
+        LocalDateTime remindAt = f.length < 2 || f[1].isEmpty() ? null : LocalDateTime.parse(f[1]);
+        LocalDateTime first = f.length < 4 || f[3].isEmpty() ? null : LocalDateTime.parse(f[3]);
+        return new TaskSchedule(due, remindAt, f.length < 3 ? Recurrence.NONE : Recurrence.parse(f[2]), first);
+    }
+}
@@ -0,0 +1,251 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Inverted index from lower-cased description words to the ids of tasks containing them.
+// Terms are kept sorted so the last word of a query can match as a prefix, which is what
+// search-as-you-type needs. Methods are synchronized so queries can run off the EDT while
+// the GUI keeps mutating tasks. Descriptions are read with Task.peekDescription, so
+// indexing does not leave lazy ones decoded.
+public class TaskSearchIndex {
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    // Ids of tasks containing one term, ascending.
+    private static class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                insertAt(-pos - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        // Merges another sorted list in one pass instead of shifting for every id; new ids
+        // past the end, the usual case, are simply appended.
+        void addAll(Postings other) {
+            if (size == 0 || other.ids[0] > ids[size - 1]) {
+                if (size + other.size > ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + other.size));
+                }
+                System.arraycopy(other.ids, 0, ids, size, other.size);
+                size += other.size;
+                return;
+            }
+            int[] merged = new int[Math.max(2, size + other.size)];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                int next = j == other.size || (i < size && ids[i] < other.ids[j]) ? ids[i++] : other.ids[j++];
+                if (n == 0 || merged[n - 1] != next) {
+                    merged[n++] = next;
+                }
+            }
+            ids = merged;
+            size = n;
+        }
+
+        boolean removeAll(Postings other) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                while (j < other.size && other.ids[j] < ids[i]) {
+                    j++;
+                }
+                if (j == other.size || other.ids[j] != ids[i]) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+            return size == 0;
+        }
+
+        private void insertAt(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+    }
+
+    public synchronized void add(Task t) {
+        for (String term : tokenize(t.peekDescription())) {
+            terms.computeIfAbsent(term, k -> new Postings()).add(t.getId());
+        }
+    }
+
+    public synchronized void remove(Task t) {
+        removeTerms(t.getId(), t.peekDescription());
+    }
+
+    // Bulk versions for many tasks at once: ids are gathered per term first, so each
+    // posting list changes once rather than once per task.
+    public synchronized void addAll(Collection<Task> added) {
+        for (Map.Entry<String, Postings> e : idsByTerm(added).entrySet()) {
+            terms.computeIfAbsent(e.getKey(), k -> new Postings()).addAll(e.getValue());
+        }
+    }
+
+    public synchronized void removeAll(Collection<Task> removed) {
+        for (Map.Entry<String, Postings> e : idsByTerm(removed).entrySet()) {
+            Postings p = terms.get(e.getKey());
+            if (p != null && p.removeAll(e.getValue())) {
+                terms.remove(e.getKey());
+            }
+        }
+    }
+
+    public synchronized void update(int id, String oldDescription, String newDescription) {
+        removeTerms(id, oldDescription);
+        for (String term : tokenize(newDescription)) {
+            terms.computeIfAbsent(term, k -> new Postings()).add(id);
+        }
+    }
+
+    public synchronized void clear() {
+        terms.clear();
+    }
+
+    // Ids of tasks containing every word of the query, ascending, at most limit of them.
+    // Unless the query ends in a separator its last word also matches longer words.
+    public synchronized int[] search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        boolean prefixLast = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            int[] ids;
+            if (prefixLast && i == words.size() - 1) {
+                ids = prefixIds(word);
+            } else {
+                Postings p = terms.get(word);
+                ids = p == null ? new int[0] : Arrays.copyOf(p.ids, p.size);
+            }
+            if (ids.length == 0) {
+                return ids;
+            }
+            lists.add(ids);
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+
+        // Walk the shortest list and probe the others.
+        int[] driver = lists.get(0);
+        int[] result = new int[Math.min(limit, driver.length)];
+        int found = 0;
+        outer:
+        for (int id : driver) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (Arrays.binarySearch(lists.get(i), id) < 0) {
+                    continue outer;
+                }
+            }
+            result[found++] = id;
+            if (found == result.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    public synchronized int termCount() {
+        return terms.size();
+    }
+
+    private int[] prefixIds(String prefix) {
+        NavigableMap<String, Postings> range = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.size() == 1) {
+            Postings p = range.firstEntry().getValue();
+            return Arrays.copyOf(p.ids, p.size);
+        }
+        int total = 0;
+        for (Postings p : range.values()) {
+            total += p.size;
+        }
+        int[] ids = new int[total];
+        int n = 0;
+        for (Map.Entry<String, Postings> e : range.entrySet()) {
+            System.arraycopy(e.getValue().ids, 0, ids, n, e.getValue().size);
+            n += e.getValue().size;
+        }
+        Arrays.sort(ids);
+        int unique = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    private static Map<String, Postings> idsByTerm(Collection<Task> tasks) {
+        Map<String, Postings> byTerm = new HashMap<>();
+        for (Task t : tasks) {
+            for (String term : tokenize(t.peekDescription())) {
+                Postings p = byTerm.computeIfAbsent(term, k -> new Postings());
+                p.insertAt(p.size, t.getId());
+            }
+        }
+        for (Postings p : byTerm.values()) {
+            Arrays.sort(p.ids, 0, p.size);
+        }
+        return byTerm;
+    }
+
+    private void removeTerms(int id, String description) {
+        for (String term : tokenize(description)) {
+            Postings p = terms.get(term);
+            if (p != null && p.remove(id)) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    // Lower-cased runs of letters and digits, without duplicates.
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = text.substring(start, i).toLowerCase();
+                if (!words.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,559 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves one TaskManager to many clients over a line-based text protocol, from a single
+// NIO selector thread. Requests are "<n> <COMMAND> <args>" and each gets "<n> OK <value>"
+// or "<n> ERR <message>", in order, with "<n> ROW <task>" lines before the OK when it
+// returns tasks. Tasks travel as tasks.txt rows. Clients may pipeline: everything that
+// arrived in one read runs as one TaskManager batch, so it is journaled and published
+// together, and its replies go back in one write.
+//
+// SYNC returns every task and subscribes the connection to changes, pushed as
+// "* ADDED <task>", "* UPDATED <task>", "* COMPLETED <task>", "* REMOVED <id>" and
+// "* CLEARED <ids>". A batch's changes are pushed before its replies, so a client that
+// waits for a reply already has the changes it caused.
+//
+// SEARCH, ARCHIVESEARCH, RESTORE and SYNC can take long enough to stall every other
+// client, so they run on a worker pool instead. Until one finishes, its connection's
+// later requests wait and are not read, and the reply is written back through the
+// selector thread, so replies stay in request order.
+public class TaskServer implements TaskListener {
+    public static final int DEFAULT_PORT = 7878;
+    private static final int READ_BUFFER = 64 * 1024;
+    private static final int MAX_LINE = 1 << 20;
+    // A subscriber this far behind is disconnected rather than sent more changes.
+    private static final long MAX_PENDING_BYTES = 64L << 20;
+    private static final long MAX_UNREAD_BYTES = 1L << 20;
+    private static final int MAX_GATHER = 64;
+    private static final Set<String> OFFLOADED = new HashSet<>(
+            Arrays.asList("SEARCH", "ARCHIVESEARCH", "RESTORE", "SYNC"));
+
+    private final TaskManager manager;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final List<Connection> subscribers = new ArrayList<>();
+    private final Set<Connection> dirty = new LinkedHashSet<>();
+    private final OperationStats batchTime;
+    private final ExecutorService workers;
+    // Work handed to the selector thread by workers and by mutations made on them.
+    private final Queue<Runnable> posted = new ConcurrentLinkedQueue<>();
+    private Thread loop;
+    private volatile boolean running;
+
+    private static class Connection {
+        final SocketChannel channel;
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        long pendingBytes;
+        boolean subscribed;
+        // Requests read but not run yet, while busy with one on the worker pool.
+        final ArrayDeque<String> waiting = new ArrayDeque<>();
+        boolean busy;
+        // Pushes held back until the SYNC reply being built has been sent.
+        ArrayDeque<ByteBuffer> held;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    // Port 0 picks a free port; see getPort().
+    public TaskServer(TaskManager manager, InetAddress address, int port) throws IOException {
+        this.manager = manager;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(address, port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        batchTime = manager.getMetrics().operation("server.batch");
+        workers = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "task-server-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        // Mutations on the selector thread get their events there synchronously, at the
+        // end of the batch that caused them; those made on a worker are posted to it.
+        manager.addTaskListener(this, this::onLoop);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public synchronized void start() {
+        running = true;
+        loop = new Thread(this::run, "task-server");
+        loop.start();
+    }
+
+    public void close() {
+        running = false;
+        selector.wakeup();
+        Thread t;
+        synchronized (this) {
+            t = loop;
+        }
+        if (t != null) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.shutdownNow();
+        manager.removeTaskListener(this);
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write((Connection) key.attachment());
+                        }
+                    } catch (IOException e) {
+                        drop((Connection) key.attachment());
+                    }
+                }
+                for (Runnable r; (r = posted.poll()) != null; ) {
+                    r.run();
+                }
+                flushDirty();
+            }
+        } catch (IOException e) {
+            System.out.println("Error running task server: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection c = (Connection) key.attachment();
+        if (c.channel.read(c.in) < 0) {
+            drop(c);
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        ByteBuffer in = c.in;
+        in.flip();
+        int start = 0;
+        for (int i = 0; i < in.limit(); i++) {
+            if (in.get(i) == '\n') {
+                int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                lines.add(new String(in.array(), start, end - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        in.position(start);
+        in.compact();
+        if (!in.hasRemaining()) {
+            if (in.capacity() >= MAX_LINE) {
+                drop(c);
+                return;
+            }
+            c.in = ByteBuffer.allocate(in.capacity() * 2).put(in.flip());
+        }
+        if (!lines.isEmpty()) {
+            handle(c, lines);
+        }
+    }
+
+    private void handle(Connection c, List<String> lines) {
+        c.waiting.addAll(lines);
+        resume(c);
+    }
+
+    // Runs the connection's waiting requests in order, the quick ones together as one
+    // batch, until one has to go to the worker pool. That one ends the batch before it,
+    // so its reply and any SYNC snapshot are not overtaken by earlier changes.
+    private void resume(Connection c) {
+        List<String> batch = new ArrayList<>();
+        while (!c.busy && !c.waiting.isEmpty()) {
+            String line = c.waiting.poll();
+            String[] parts = line.split(" ", 3);
+            if (parts.length < 2 || !OFFLOADED.contains(parts[1])) {
+                batch.add(line);
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                runBatch(c, batch);
+                batch = new ArrayList<>();
+            }
+            offload(c, parts[0], parts[1], parts.length > 2 ? parts[2] : "");
+        }
+        if (!batch.isEmpty()) {
+            runBatch(c, batch);
+        }
+    }
+
+    // SYNC takes its snapshot and subscribes here, so no change falls between the two;
+    // only encoding the rows is left to the worker, and the changes meanwhile are held
+    // until the rows are sent. A row may already show such a change, which the push then
+    // repeats harmlessly.
+    private void offload(Connection c, String n, String command, String args) {
+        c.busy = true;
+        SelectionKey key = c.channel.keyFor(selector);
+        if (key != null && key.isValid()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+        List<Task> snapshot;
+        if (command.equals("SYNC")) {
+            snapshot = manager.getTasksSnapshot();
+            c.held = new ArrayDeque<>();
+            if (!c.subscribed) {
+                c.subscribed = true;
+                subscribers.add(c);
+            }
+        } else {
+            snapshot = null;
+        }
+        workers.execute(() -> {
+            StringBuilder reply = new StringBuilder();
+            try {
+                String value = snapshot != null ? rows(snapshot, n, reply) : execute(command, args, n, reply);
+                reply.append(n).append(" OK ").append(value).append('\n');
+            } catch (RuntimeException e) {
+                reply.append(n).append(" ERR ").append(String.valueOf(e.getMessage()).replace('\n', ' '))
+                        .append('\n');
+            }
+            post(() -> finish(c, reply));
+        });
+    }
+
+    // On the selector thread, after any pushes of the changes the command made.
+    private void finish(Connection c, StringBuilder reply) {
+        if (!c.channel.isOpen()) {
+            return;
+        }
+        c.busy = false;
+        enqueue(c, ByteBuffer.wrap(reply.toString().getBytes(StandardCharsets.UTF_8)));
+        if (c.held != null) {
+            c.out.addAll(c.held);
+            c.held = null;
+        }
+        manager.getMetrics().count("server.requests", 1);
+        resume(c);
+    }
+
+    private void post(Runnable r) {
+        posted.add(r);
+        selector.wakeup();
+    }
+
+    private void onLoop(Runnable r) {
+        if (Thread.currentThread() == loop) {
+            r.run();
+        } else {
+            post(r);
+        }
+    }
+
+    private void runBatch(Connection c, List<String> lines) {
+        long start = System.nanoTime();
+        StringBuilder replies = new StringBuilder();
+        manager.batch(m -> {
+            for (String line : lines) {
+                String[] parts = line.split(" ", 3);
+                String n = parts[0];
+                try {
+                    String value = execute(parts.length > 1 ? parts[1] : "", parts.length > 2 ? parts[2] : "",
+                            n, replies);
+                    replies.append(n).append(" OK ").append(value).append('\n');
+                } catch (RuntimeException e) {
+                    replies.append(n).append(" ERR ").append(String.valueOf(e.getMessage()).replace('\n', ' '))
+                            .append('\n');
+                }
+            }
+        });
+        // The batch's pushes are already queued, ahead of these replies.
+        enqueue(c, ByteBuffer.wrap(replies.toString().getBytes(StandardCharsets.UTF_8)));
+        batchTime.record(start);
+        manager.getMetrics().count("server.requests", lines.size());
+    }
+
+    // Runs one command and returns the value for its OK reply; commands returning tasks
+    // add their ROW lines to rows first.
+    private String execute(String command, String args, String n, StringBuilder rows) {
+        String[] a;
+        switch (command) {
+            case "PING":
+                return "";
+            case "ADD":
+                a = args.split(" ", 2);
+                return TextTaskFormat.toRow(manager.addTask(a.length > 1 ? a[1] : "", Priority.parse(a[0])));
+            case "IMPORT":
+                Task template = TextTaskFormat.parseRow(args);
+                if (template == null) {
+                    throw new IllegalArgumentException("bad task row");
+                }
+                return TextTaskFormat.toRow(manager.addAll(Collections.singletonList(template)).get(0));
+            case "GET":
+                Task t = manager.getTaskById(Integer.parseInt(args));
+                return t == null ? "" : TextTaskFormat.toRow(t);
+            case "DONE":
+                return String.valueOf(manager.markDoneById(Integer.parseInt(args)));
+            case "EDIT":
+                a = args.split(" ", 2);
+                return String.valueOf(manager.editTaskById(Integer.parseInt(a[0]), a.length > 1 ? a[1] : ""));
+            case "PRIORITY":
+                a = args.split(" ", 2);
+                return String.valueOf(manager.updatePriorityById(Integer.parseInt(a[0]), Priority.parse(a[1])));
+            case "SCHEDULE":
+                a = args.split(" ", 2);
+                return String.valueOf(manager.setSchedule(Integer.parseInt(a[0]),
+                        a.length > 1 && !a[1].isEmpty() ? TaskSchedule.decode(a[1]) : null));
+            case "DELETE":
+                return String.valueOf(manager.deleteTaskById(Integer.parseInt(args)));
+            case "DONEALL":
+                return String.valueOf(manager.markDoneAll(parseIds(args)));
+            case "PRIORITYALL":
+                a = args.split(" ", 2);
+                return String.valueOf(manager.updatePriorityAll(parseIds(a.length > 1 ? a[1] : ""), Priority.parse(a[0])));
+            case "DELETEALL":
+                return String.valueOf(manager.deleteAll(parseIds(args)));
+            case "CLEAR":
+                manager.deleteCompletedTasks();
+                return "";
+            case "SEARCH":
+                a = args.split(" ", 2);
+                return joinIds(manager.search(a.length > 1 ? a[1] : "", Integer.parseInt(a[0])));
+            case "ARCHIVE":
+                return String.valueOf(manager.archiveCompleted(Integer.parseInt(args)));
+            case "ARCHIVED":
+                return String.valueOf(manager.getArchivedCount());
+            case "ARCHIVESEARCH":
+                a = args.split(" ", 2);
+                return rows(manager.searchArchive(a.length > 1 ? a[1] : "", Integer.parseInt(a[0])), n, rows);
+            case "RESTORE":
+                return rows(manager.restoreFromArchive(parseIds(args)), n, rows);
+            case "PERIODS":
+                a = args.split(" ");
+                LocalDate from = LocalDate.parse(a[1]);
+                LocalDate to = LocalDate.parse(a[2]);
+                int days = Integer.parseInt(a[3]);
+                long[] counts = a[0].equals("BACKLOG") ? manager.getBacklogPerPeriod(from, to, days)
+                        : a[0].equals("CREATED") ? manager.getCreationsPerPeriod(from, to, days)
+                        : manager.getCompletionsPerPeriod(from, to, days);
+                return joinLongs(counts);
+            case "LATENCY":
+                a = args.split(" ");
+                return manager.getCompletionLatency(LocalDate.parse(a[0]), LocalDate.parse(a[1]),
+                        a[2].equals("ALL") ? null : Priority.parse(a[2])).encode();
+            default:
+                throw new IllegalArgumentException("unknown command " + command);
+        }
+    }
+
+    private static String rows(List<Task> tasks, String n, StringBuilder out) {
+        for (Task t : tasks) {
+            out.append(n).append(" ROW ").append(TextTaskFormat.toRow(t)).append('\n');
+        }
+        return String.valueOf(tasks.size());
+    }
+
+    static List<Integer> parseIds(String text) {
+        List<Integer> ids = new ArrayList<>();
+        for (String id : text.split(",")) {
+            if (!id.isEmpty()) {
+                ids.add(Integer.parseInt(id));
+            }
+        }
+        return ids;
+    }
+
+    static String joinIds(int[] ids) {
+        StringBuilder out = new StringBuilder();
+        for (int id : ids) {
+            out.append(out.length() == 0 ? "" : ",").append(id);
+        }
+        return out.toString();
+    }
+
+    private static String joinLongs(long[] values) {
+        StringBuilder out = new StringBuilder();
+        for (long v : values) {
+            out.append(out.length() == 0 ? "" : ",").append(v);
+        }
+        return out.toString();
+    }
+
+    // Encoded once and shared by every subscriber.
+    @Override
+    public void tasksChanged(List<TaskEvent> events) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        StringBuilder push = new StringBuilder();
+        for (TaskEvent e : events) {
+            if (e.getType() == TaskEvent.Type.APPENDED) {
+                // Clients see a loaded chunk as the ADDED events it stands for.
+                for (Task t : e.getAppended()) {
+                    push.append("* ADDED ").append(TextTaskFormat.toRow(t)).append('\n');
+                }
+                continue;
+            }
+            push.append("* ").append(e.getType()).append(' ');
+            switch (e.getType()) {
+                case REMOVED:
+                    push.append(e.getId());
+                    break;
+                case CLEARED:
+                    push.append(joinIds(e.getClearedIds()));
+                    break;
+                default:
+                    push.append(TextTaskFormat.toRow(e.getTask()));
+            }
+            push.append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(push.toString().getBytes(StandardCharsets.UTF_8));
+        for (Connection c : new ArrayList<>(subscribers)) {
+            if (c.pendingBytes > MAX_PENDING_BYTES) {
+                System.out.println("Error serving tasks: dropping a subscriber " + c.pendingBytes + " bytes behind");
+                drop(c);
+            } else {
+                if (c.held != null) {
+                    c.held.add(bytes.duplicate());
+                    c.pendingBytes += bytes.remaining();
+                } else {
+                    enqueue(c, bytes.duplicate());
+                }
+            }
+        }
+    }
+
+    private void enqueue(Connection c, ByteBuffer bytes) {
+        c.out.add(bytes);
+        c.pendingBytes += bytes.remaining();
+        dirty.add(c);
+    }
+
+    private void flushDirty() {
+        for (Connection c : dirty) {
+            try {
+                write(c);
+            } catch (IOException e) {
+                drop(c);
+            }
+        }
+        dirty.clear();
+    }
+
+    // Writes as much as the socket takes in one gathering write and waits for OP_WRITE
+    // for the rest. While more than MAX_UNREAD_BYTES wait, the connection's requests are
+    // not read, so a client that stops reading its replies stops being served rather
+    // than piling them up.
+    private void write(Connection c) throws IOException {
+        if (!c.channel.isOpen()) {
+            return;
+        }
+        while (!c.out.isEmpty()) {
+            ByteBuffer[] gather = new ByteBuffer[Math.min(c.out.size(), MAX_GATHER)];
+            Iterator<ByteBuffer> it = c.out.iterator();
+            for (int i = 0; i < gather.length; i++) {
+                gather[i] = it.next();
+            }
+            long written = c.channel.write(gather);
+            c.pendingBytes -= written;
+            while (!c.out.isEmpty() && !c.out.peek().hasRemaining()) {
+                c.out.poll();
+            }
+            if (written == 0) {
+                break;
+            }
+        }
+        SelectionKey key = c.channel.keyFor(selector);
+        if (key != null && key.isValid()) {
+            int ops = c.pendingBytes > MAX_UNREAD_BYTES || c.busy ? 0 : SelectionKey.OP_READ;
+            key.interestOps(c.out.isEmpty() ? ops : ops | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void drop(Connection c) {
+        if (c == null) {
+            return;
+        }
+        subscribers.remove(c);
+        c.out.clear();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Headless server: java TaskServer [--port N] [--host ADDRESS] [--shards N]. Tasks are
+    // kept in the working directory, or in -Dtasktracker.dir.
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        InetAddress host = InetAddress.getLoopbackAddress();
+        int shards = Integer.getInteger("tasktracker.shards", 1);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--host":
+                    host = InetAddress.getByName(args[i + 1]);
+                    break;
+                case "--shards":
+                    shards = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        TaskManager manager = new TaskManager(true, Boolean.getBoolean("tasktracker.binary"), shards);
+        TaskServer server = new TaskServer(manager, host, port);
+        server.start();
+        System.out.println("Task server listening on " + host.getHostAddress() + ":" + server.getPort()
+                + " with " + (manager.getCompletedCount() + manager.getPendingCount()) + " tasks");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            manager.close();
+        }));
+    }
+}
@@ -0,0 +1,301 @@
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// One id partition of TaskManager's in-memory state: the id-ordered task list, the id
+// index, the status/priority buckets, the search index and the analytics aggregates. TaskManager holds the shard's
+// lock around every call; the shard itself does no locking.
+//
+// With a TaskStore, tasks are attached to it as they come in and detached as they go,
+// so only tasks in the shard keep their state in its columns.
+public class TaskShard {
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Task> tasks = new ArrayList<>();
+    private final List<Task> view = Collections.unmodifiableList(tasks);
+    private final IntTaskMap byId = new IntTaskMap();
+    // Status/priority buckets, indexed by priority ordinal.
+    private final TaskBucket[] completedByPriority = newBuckets(true);
+    private final TaskBucket[] pendingByPriority = newBuckets(false);
+    private final TaskSearchIndex searchIndex = new TaskSearchIndex();
+    private final TaskAnalytics analytics = new TaskAnalytics();
+    private int completedCount;
+    // Off while a lazy load inserts tasks; indexAfter() adds them to the search index later.
+    private boolean indexing = true;
+    // Null unless tasks keep their state in columns.
+    private final TaskStore store;
+
+    public TaskShard() {
+        this(null);
+    }
+
+    public TaskShard(TaskStore store) {
+        this.store = store;
+    }
+
+    public Task get(int id) {
+        return byId.get(id);
+    }
+
+    public List<Task> tasks() {
+        return view;
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    public int completedCount() {
+        return completedCount;
+    }
+
+    public int count(boolean completed, Priority priority) {
+        int slot = priority.ordinal();
+        return completed ? completedByPriority[slot].size() : pendingByPriority[slot].size();
+    }
+
+    // Buckets matching a status and priority; null matches any value.
+    public void collectBuckets(Boolean completed, Priority priority, List<TaskBucket> into) {
+        for (int slot = 0; slot < Priority.count(); slot++) {
+            if (priority != null && slot != priority.ordinal()) {
+                continue;
+            }
+            if (completed == null || completed) {
+                into.add(completedByPriority[slot]);
+            }
+            if (completed == null || !completed) {
+                into.add(pendingByPriority[slot]);
+            }
+        }
+    }
+
+    public TaskAnalytics analytics() {
+        return analytics;
+    }
+
+    public int[] search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    public void insert(Task t) {
+        if (store != null) {
+            t.attach(store);
+        }
+        int last = tasks.size() - 1;
+        if (last < 0 || tasks.get(last).getId() < t.getId()) {
+            tasks.add(t);
+        } else {
+            tasks.add(-positionOf(t.getId()) - 1, t);
+        }
+        byId.put(t.getId(), t);
+        track(t);
+        if (indexing) {
+            searchIndex.add(t);
+        }
+    }
+
+    public void setIndexing(boolean indexing) {
+        this.indexing = indexing;
+    }
+
+    // Adds up to max tasks with ids above after to the search index and returns the last
+    // id added, or -1 when there are none. The read lock is enough to call this: the index
+    // has its own, and a task cannot change meanwhile. One added again is left as it is,
+    // and changes made before it was reached have already updated the index.
+    public int indexAfter(int after, int max) {
+        int from = positionOf(after + 1);
+        from = from >= 0 ? from : -from - 1;
+        int to = Math.min(tasks.size(), from + max);
+        if (from >= to) {
+            return -1;
+        }
+        searchIndex.addAll(tasks.subList(from, to));
+        return tasks.get(to - 1).getId();
+    }
+
+    // Inserts many tasks, sorted by id and none already present, with one merge per list
+    // instead of a shift per task.
+    public void insertAll(List<Task> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        if (store != null) {
+            for (Task t : added) {
+                t.attach(store);
+            }
+        }
+        TaskBucket.mergeById(tasks, added);
+        Map<TaskBucket, List<Task>> byBucket = new IdentityHashMap<>();
+        if (indexing) {
+            searchIndex.addAll(added);
+        }
+        analytics.addAll(added);
+        for (Task t : added) {
+            byId.put(t.getId(), t);
+            if (t.isCompleted()) {
+                completedCount++;
+            }
+            byBucket.computeIfAbsent(bucketOf(t), b -> new ArrayList<>()).add(t);
+        }
+        for (Map.Entry<TaskBucket, List<Task>> e : byBucket.entrySet()) {
+            e.getKey().addAll(e.getValue());
+        }
+    }
+
+    public void remove(Task t) {
+        tasks.remove(positionOf(t.getId()));
+        byId.remove(t.getId());
+        untrack(t);
+        searchIndex.remove(t);
+        t.detach();
+    }
+
+    public void describe(Task t, String description) {
+        searchIndex.update(t.getId(), t.peekDescription(), description);
+        t.setDescription(description);
+    }
+
+    public void complete(Task t, LocalDateTime when) {
+        untrack(t);
+        t.markCompleted(when);
+        track(t);
+    }
+
+    public void reprioritize(Task t, Priority priority) {
+        untrack(t);
+        t.setPriority(priority);
+        track(t);
+    }
+
+    // Removes many tasks in one pass over the task list.
+    public void removeAll(List<Task> removed) {
+        Set<Task> doomed = Collections.newSetFromMap(new IdentityHashMap<>());
+        doomed.addAll(removed);
+        tasks.removeIf(doomed::contains);
+        for (TaskBucket bucket : completedByPriority) {
+            bucket.removeAll(doomed);
+        }
+        for (TaskBucket bucket : pendingByPriority) {
+            bucket.removeAll(doomed);
+        }
+        searchIndex.removeAll(removed);
+        analytics.removeAll(removed);
+        for (Task t : removed) {
+            byId.remove(t.getId());
+            if (t.isCompleted()) {
+                completedCount--;
+            }
+            t.detach();
+        }
+    }
+
+    // Completed tasks finished before cutoff, oldest first within each priority. As in
+    // TaskOrder.COMPLETED, a task without a completion date counts as done when created.
+    public List<Task> completedBefore(LocalDateTime cutoff) {
+        List<Task> found = new ArrayList<>();
+        for (TaskBucket bucket : completedByPriority) {
+            Iterator<Task> it = bucket.iterator(TaskOrder.COMPLETED, false);
+            while (it.hasNext()) {
+                Task t = it.next();
+                LocalDateTime done = t.getCompletedDate() != null ? t.getCompletedDate() : t.getCreatedDate();
+                if (!done.isBefore(cutoff)) {
+                    break;
+                }
+                found.add(t);
+            }
+        }
+        return found;
+    }
+
+    // Returns the removed tasks in id order.
+    public List<Task> removeCompleted() {
+        List<Task> removed = new ArrayList<>(completedCount);
+        tasks.removeIf(t -> {
+            if (t.isCompleted()) {
+                byId.remove(t.getId());
+                removed.add(t);
+                return true;
+            }
+            return false;
+        });
+        searchIndex.removeAll(removed);
+        analytics.removeAll(removed);
+        for (TaskBucket bucket : completedByPriority) {
+            bucket.clear();
+        }
+        completedCount = 0;
+        for (Task t : removed) {
+            t.detach();
+        }
+        return removed;
+    }
+
+    // Recounts everything from scratch and fails if the live tallies have drifted.
+    public void verifyCounters() {
+        int[] completed = new int[completedByPriority.length];
+        int[] pending = new int[pendingByPriority.length];
+        for (Task t : tasks) {
+            (t.isCompleted() ? completed : pending)[t.getPriority().ordinal()]++;
+        }
+        int completedTotal = Arrays.stream(completed).sum();
+        int[] completedLive = Arrays.stream(completedByPriority).mapToInt(TaskBucket::size).toArray();
+        int[] pendingLive = Arrays.stream(pendingByPriority).mapToInt(TaskBucket::size).toArray();
+        if (completedTotal != completedCount
+                || !Arrays.equals(completed, completedLive)
+                || !Arrays.equals(pending, pendingLive)) {
+            throw new IllegalStateException("Task counters out of sync: completed " + completedCount
+                    + " vs " + completedTotal + ", by priority " + Arrays.toString(completedLive)
+                    + "/" + Arrays.toString(pendingLive) + " vs " + Arrays.toString(completed)
+                    + "/" + Arrays.toString(pending));
+        }
+    }
+
+    private static TaskBucket[] newBuckets(boolean completed) {
+        TaskBucket[] buckets = new TaskBucket[Priority.count()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new TaskBucket(completed);
+        }
+        return buckets;
+    }
+
+    private TaskBucket bucketOf(Task t) {
+        int slot = t.getPriority().ordinal();
+        return t.isCompleted() ? completedByPriority[slot] : pendingByPriority[slot];
+    }
+
+    private void track(Task t) {
+        bucketOf(t).add(t);
+        analytics.add(t);
+        if (t.isCompleted()) {
+            completedCount++;
+        }
+    }
+
+    private void untrack(Task t) {
+        bucketOf(t).remove(t);
+        analytics.remove(t);
+        if (t.isCompleted()) {
+            completedCount--;
+        }
+    }
+
+    // Ids are handed out in increasing order, so the list stays sorted by id and a task's
+    // position can be found by binary search instead of a scan. Returns -(insertion
+    // point + 1) when the id is absent.
+    private int positionOf(int id) {
+        int lo = 0;
+        int hi = tasks.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = tasks.get(mid).getId();
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+}
@@ -0,0 +1,137 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Column-oriented home for the state of a shard's tasks with -Dtasktracker.columnar: one
+// primitive array per field instead of each task's own fields plus two LocalDateTimes.
+// A task attached to a store keeps its id and description and reads and writes its
+// status, priority, dates and schedule through its row (see Task.attach), so the task
+// object itself is only a view. Rows of detached tasks are reused.
+//
+// The shard's write lock covers every change. Columns are read and written with
+// volatile semantics, as Task's own fields are, for readers that hold no lock, and Task
+// checks it is still attached after each read, so it never reports the values of a task
+// that took over its row.
+public class TaskStore {
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle SCHEDULES = MethodHandles.arrayElementVarHandle(TaskSchedule[].class);
+    // States hold the priority ordinal, plus this bit once completed.
+    private static final byte COMPLETED = (byte) 0x80;
+    // Dates are seconds and nanoseconds of the local date-time taken as UTC, so they come
+    // back exactly as they went in; no date lies this far back.
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private volatile byte[] states;
+    private volatile long[] createdSeconds;
+    private volatile int[] createdNanos;
+    private volatile long[] completedSeconds;
+    private volatile int[] completedNanos;
+    private volatile TaskSchedule[] schedules;
+    private int rows;
+    private int[] free = new int[16];
+    private int freeCount;
+
+    public TaskStore() {
+        this(16);
+    }
+
+    public TaskStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        states = new byte[capacity];
+        createdSeconds = new long[capacity];
+        createdNanos = new int[capacity];
+        completedSeconds = new long[capacity];
+        completedNanos = new int[capacity];
+        schedules = new TaskSchedule[capacity];
+    }
+
+    public int size() {
+        return rows - freeCount;
+    }
+
+    // Stores a task's state in a free row and returns the row.
+    int add(boolean completed, Priority priority, LocalDateTime created, LocalDateTime completedDate,
+            TaskSchedule schedule) {
+        int row;
+        if (freeCount > 0) {
+            row = free[--freeCount];
+        } else {
+            if (rows == states.length) {
+                grow();
+            }
+            row = rows++;
+        }
+        BYTES.setVolatile(states, row, (byte) (priority.ordinal() | (completed ? COMPLETED : 0)));
+        setDate(createdSeconds, createdNanos, row, created);
+        setDate(completedSeconds, completedNanos, row, completedDate);
+        SCHEDULES.setVolatile(schedules, row, schedule);
+        return row;
+    }
+
+    void free(int row) {
+        SCHEDULES.setVolatile(schedules, row, (TaskSchedule) null);
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = row;
+    }
+
+    boolean isCompleted(int row) {
+        return ((byte) BYTES.getVolatile(states, row) & COMPLETED) != 0;
+    }
+
+    Priority priority(int row) {
+        return Priority.ofCode((byte) BYTES.getVolatile(states, row) & ~COMPLETED);
+    }
+
+    LocalDateTime createdDate(int row) {
+        return date(createdSeconds, createdNanos, row);
+    }
+
+    LocalDateTime completedDate(int row) {
+        return date(completedSeconds, completedNanos, row);
+    }
+
+    TaskSchedule schedule(int row) {
+        return (TaskSchedule) SCHEDULES.getVolatile(schedules, row);
+    }
+
+    void complete(int row, LocalDateTime when) {
+        // The date first, so a reader that sees the task completed also sees when.
+        setDate(completedSeconds, completedNanos, row, when);
+        BYTES.setVolatile(states, row, (byte) ((byte) BYTES.getVolatile(states, row) | COMPLETED));
+    }
+
+    void setPriority(int row, Priority priority) {
+        byte state = (byte) BYTES.getVolatile(states, row);
+        BYTES.setVolatile(states, row, (byte) ((state & COMPLETED) | priority.ordinal()));
+    }
+
+    void setSchedule(int row, TaskSchedule schedule) {
+        SCHEDULES.setVolatile(schedules, row, schedule);
+    }
+
+    private void grow() {
+        int capacity = states.length * 2;
+        states = Arrays.copyOf(states, capacity);
+        createdSeconds = Arrays.copyOf(createdSeconds, capacity);
+        createdNanos = Arrays.copyOf(createdNanos, capacity);
+        completedSeconds = Arrays.copyOf(completedSeconds, capacity);
+        completedNanos = Arrays.copyOf(completedNanos, capacity);
+        schedules = Arrays.copyOf(schedules, capacity);
+    }
+
+    private static void setDate(long[] seconds, int[] nanos, int row, LocalDateTime date) {
+        INTS.setVolatile(nanos, row, date != null ? date.getNano() : 0);
+        LONGS.setVolatile(seconds, row, date != null ? date.toEpochSecond(ZoneOffset.UTC) : NO_DATE);
+    }
+
+    private static LocalDateTime date(long[] seconds, int[] nanos, int row) {
+        long s = (long) LONGS.getVolatile(seconds, row);
+        return s == NO_DATE ? null : LocalDateTime.ofEpochSecond(s, (int) INTS.getVolatile(nanos, row), ZoneOffset.UTC);
+    }
+}
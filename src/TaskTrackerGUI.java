@@ -1,16 +1,59 @@
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 public class TaskTrackerGUI extends JFrame {
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    private static final int MAX_REMINDERS_SHOWN = 10;
+    private static final DateTimeFormatter DUE_INPUT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final String[] REMINDER_OFFSETS = {
+            "No reminder", "At due time", "15 minutes before", "1 hour before", "1 day before"};
+    private static final int[] REMINDER_MINUTES = {-1, 0, 15, 60, 24 * 60};
+    // "true" prints when the first frame was shown and when the tasks were loaded, in ms
+    // since the JVM started; "exit" also exits then, for startup benchmarks and the
+    // class-data-sharing training run.
+    private static final String STARTUP_TIMING = System.getProperty("tasktracker.startupTiming");
+
     private TaskManager manager;
-    private DefaultListModel<String> listModel;
-    private JList<String> taskList;
+    private TaskListModel listModel;
+    private JList<Task> taskList;
     private JTextField inputField;
+    private JTextField searchField;
+    private Timer searchTimer;
     private JLabel statsLabel;
-    private JComboBox<String> priorityCombo;
+    private JComboBox<Priority> priorityCombo;
     private JComboBox<String> filterCombo;
+    private JComboBox<String> sortCombo;
+    private JMenuItem undoItem;
+    private JMenuItem redoItem;
+    // Set while an undo or redo runs in the background.
+    private boolean historyBusy;
+    private EdtMonitor edtMonitor;
+    private OperationStats filterTime;
+    private OperationStats sortTime;
+    private OperationStats searchTime;
+    private OperationStats statsTime;
+    private OperationStats listEventsTime;
+    // While a background load runs, changes wait here and run in order once it is done.
+    private final List<Runnable> queuedActions = new ArrayList<>();
+    private boolean loading;
+    private boolean exitWhenLoaded;
+    private long firstFrameMillis = -1;
+    private int loadPercent;
 
     // Professional Color Scheme
     private Color primaryBlue = new Color(41, 128, 185);
@@ -25,15 +68,53 @@ public class TaskTrackerGUI extends JFrame {
     private Color darkText = new Color(44, 62, 80);
 
     public TaskTrackerGUI() {
-        manager = new TaskManager();
-        listModel = new DefaultListModel<>();
+        this(new TaskManager(true));
+    }
+
+    // Shows the tasks of any manager, e.g. a RemoteTaskManager connected to a TaskServer.
+    public TaskTrackerGUI(TaskManager manager) {
+        this.manager = manager;
+        TaskMetrics metrics = manager.getMetrics();
+        metrics.registerMBeans("tasktracker");
+        filterTime = metrics.operation("gui.applyFilter");
+        sortTime = metrics.operation("gui.applySort");
+        searchTime = metrics.operation("gui.showSearchResults");
+        statsTime = metrics.operation("gui.updateStats");
+        listEventsTime = metrics.operation("gui.listEvents");
+        edtMonitor = new EdtMonitor(metrics, 250);
+        edtMonitor.start();
+        listModel = new TaskListModel(manager);
+        // Changes may come from background threads, so they are delivered on the EDT.
+        manager.addTaskListener(events -> {
+            long start = System.nanoTime();
+            listModel.tasksChanged(events);
+            listEventsTime.record(start);
+        }, SwingUtilities::invokeLater);
+        manager.addTaskListener(events -> {
+            updateStats();
+            updateUndoItems();
+        }, SwingUtilities::invokeLater);
+        manager.addReminderListener(this::showReminders, SwingUtilities::invokeLater);
         taskList = new JList<>(listModel);
         inputField = new JTextField(20);
+        searchField = new JTextField(20);
         statsLabel = new JLabel();
 
         setTitle("Professional Task Tracker");
-        setSize(650, 600);
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setSize(800, 600);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            public void windowOpened(WindowEvent e) {
+                if (STARTUP_TIMING != null) {
+                    firstFrameMillis = millisSinceStart();
+                    reportStartup();
+                }
+            }
+
+            public void windowClosing(WindowEvent e) {
+                exit();
+            }
+        });
         setLayout(new BorderLayout(15, 15));
         getContentPane().setBackground(lightBg);
 
@@ -53,7 +134,16 @@ public class TaskTrackerGUI extends JFrame {
         add(scrollPane, BorderLayout.CENTER);
         add(bottomPanel, BorderLayout.SOUTH);
 
-        refreshList();
+        // A manager made with loadLater fills in behind the window from here on.
+        if (!manager.isLoaded()) {
+            loading = true;
+            manager.whenLoaded(this::loadFinished, SwingUtilities::invokeLater);
+            manager.loadInBackground(percent -> SwingUtilities.invokeLater(() -> {
+                loadPercent = percent;
+                updateStats();
+            }));
+        }
+        updateStats();
 
         setLocationRelativeTo(null);
     }
@@ -65,13 +155,36 @@ public class TaskTrackerGUI extends JFrame {
 
         JMenu fileMenu = new JMenu("File");
         fileMenu.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        JMenuItem importItem = new JMenuItem("Import Tasks...");
+        importItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        importItem.addActionListener(e -> importTasks());
+        fileMenu.add(importItem);
+        JMenuItem exportItem = new JMenuItem("Export Tasks...");
+        exportItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        // Export waits for the load, or it would write only the tasks loaded so far.
+        exportItem.addActionListener(e -> whenReady(this::exportTasks));
+        fileMenu.add(exportItem);
+        fileMenu.addSeparator();
         JMenuItem exitItem = new JMenuItem("Exit");
         exitItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-        exitItem.addActionListener(e -> System.exit(0));
+        exitItem.addActionListener(e -> exit());
         fileMenu.add(exitItem);
 
         JMenu editMenu = new JMenu("Edit");
         editMenu.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        undoItem = new JMenuItem("Undo");
+        undoItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut));
+        undoItem.addActionListener(e -> runHistory(manager::undo));
+        editMenu.add(undoItem);
+        redoItem = new JMenuItem("Redo");
+        redoItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, shortcut));
+        redoItem.addActionListener(e -> runHistory(manager::redo));
+        editMenu.add(redoItem);
+        editMenu.addSeparator();
+        updateUndoItems();
         JMenuItem clearCompletedItem = new JMenuItem("Clear Completed Tasks");
         clearCompletedItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         clearCompletedItem.addActionListener(e -> {
@@ -80,11 +193,29 @@ public class TaskTrackerGUI extends JFrame {
                     "Confirm",
                     JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
-                manager.deleteCompletedTasks();
-                refreshList();
+                whenReady(manager::deleteCompletedTasks);
             }
         });
         editMenu.add(clearCompletedItem);
+        JMenuItem archiveItem = new JMenuItem("Archive Old Completed Tasks...");
+        archiveItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        archiveItem.addActionListener(e -> archiveCompleted());
+        editMenu.add(archiveItem);
+
+        JMenu viewMenu = new JMenu("View");
+        viewMenu.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        JMenuItem analyticsItem = new JMenuItem("Analytics Dashboard");
+        analyticsItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        analyticsItem.addActionListener(e -> showAnalytics());
+        viewMenu.add(analyticsItem);
+        JMenuItem archiveSearchItem = new JMenuItem("Search Archive...");
+        archiveSearchItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        archiveSearchItem.addActionListener(e -> whenReady(this::showArchive));
+        viewMenu.add(archiveSearchItem);
+        JMenuItem overdueItem = new JMenuItem("Overdue Tasks...");
+        overdueItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        overdueItem.addActionListener(e -> showOverdue());
+        viewMenu.add(overdueItem);
 
         JMenu helpMenu = new JMenu("Help");
         helpMenu.setFont(new Font("Segoe UI", Font.PLAIN, 13));
@@ -94,9 +225,14 @@ public class TaskTrackerGUI extends JFrame {
                 "Professional Task Tracker v2.0\nDeveloped for Task Management\n(c) 2025",
                 "About", JOptionPane.INFORMATION_MESSAGE));
         helpMenu.add(aboutItem);
+        JMenuItem diagnosticsItem = new JMenuItem("Save Diagnostics...");
+        diagnosticsItem.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        diagnosticsItem.addActionListener(e -> saveDiagnostics());
+        helpMenu.add(diagnosticsItem);
 
         menuBar.add(fileMenu);
         menuBar.add(editMenu);
+        menuBar.add(viewMenu);
         menuBar.add(helpMenu);
 
         setJMenuBar(menuBar);
@@ -122,7 +258,7 @@ public class TaskTrackerGUI extends JFrame {
                 new LineBorder(new Color(189, 195, 199), 1),
                 new EmptyBorder(8, 10, 8, 10)));
 
-        String[] priorities = { "MEDIUM", "HIGH", "LOW" };
+        Priority[] priorities = { Priority.MEDIUM, Priority.HIGH, Priority.LOW };
         priorityCombo = new JComboBox<>(priorities);
         priorityCombo.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         priorityCombo.setPreferredSize(new Dimension(100, 35));
@@ -158,15 +294,54 @@ public class TaskTrackerGUI extends JFrame {
 
         inputPanel.add(content);
         topPanel.add(inputPanel);
+        topPanel.add(createSearchPanel(), BorderLayout.SOUTH);
 
         return topPanel;
     }
 
+    private JPanel createSearchPanel() {
+        JPanel searchPanel = new JPanel(new BorderLayout(10, 0));
+        searchPanel.setBackground(lightBg);
+
+        JLabel label = new JLabel("Search:");
+        label.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        label.setForeground(darkText);
+
+        searchField.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        searchField.setBorder(BorderFactory.createCompoundBorder(
+                new LineBorder(new Color(189, 195, 199), 1),
+                new EmptyBorder(5, 8, 5, 8)));
+
+        // Wait for a pause in typing before querying the index.
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> runSearch());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+
+        searchPanel.add(label, BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        return searchPanel;
+    }
+
     private JScrollPane createTaskListPanel() {
         taskList.setFont(new Font("Consolas", Font.PLAIN, 13));
         taskList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         taskList.setBackground(Color.WHITE);
         taskList.setBorder(new EmptyBorder(10, 10, 10, 10));
+        taskList.setCellRenderer(new TaskCellRenderer());
+        // Fixed cell sizes stop the list UI from rendering every row just to measure it.
+        taskList.setPrototypeCellValue(new Task(999999, "Prototype task description of a typical length"));
         taskList.setFixedCellHeight(32);
         taskList.setSelectionBackground(new Color(52, 152, 219));
         taskList.setSelectionForeground(Color.WHITE);
@@ -174,17 +349,20 @@ public class TaskTrackerGUI extends JFrame {
         JPopupMenu contextMenu = new JPopupMenu();
         JMenuItem editItem = new JMenuItem("Edit Task");
         JMenuItem changePriorityItem = new JMenuItem("Change Priority");
+        JMenuItem scheduleItem = new JMenuItem("Set Due Date / Reminder...");
         JMenuItem markDoneItem = new JMenuItem("Mark Complete");
         JMenuItem deleteItem = new JMenuItem("Delete Task");
 
         editItem.addActionListener(e -> editSelectedTask());
         changePriorityItem.addActionListener(e -> changePriority());
+        scheduleItem.addActionListener(e -> scheduleSelectedTask());
         markDoneItem.addActionListener(e -> markSelectedDone());
         deleteItem.addActionListener(e -> deleteSelectedTask());
 
         contextMenu.add(markDoneItem);
         contextMenu.add(editItem);
         contextMenu.add(changePriorityItem);
+        contextMenu.add(scheduleItem);
         contextMenu.addSeparator();
         contextMenu.add(deleteItem);
 
@@ -217,8 +395,21 @@ public class TaskTrackerGUI extends JFrame {
         filterCombo.setBackground(Color.WHITE);
         filterCombo.addActionListener(e -> applyFilter());
 
+        JLabel sortLabel = new JLabel("Sort:");
+        sortLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        sortLabel.setForeground(darkText);
+
+        String[] sorts = { "Order Added", "Newest First", "Priority", "Oldest Created", "Recently Completed" };
+        sortCombo = new JComboBox<>(sorts);
+        sortCombo.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        sortCombo.setPreferredSize(new Dimension(150, 30));
+        sortCombo.setBackground(Color.WHITE);
+        sortCombo.addActionListener(e -> applySort());
+
         filterPanel.add(filterLabel);
         filterPanel.add(filterCombo);
+        filterPanel.add(sortLabel);
+        filterPanel.add(sortCombo);
 
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 12, 5));
@@ -290,10 +481,9 @@ public class TaskTrackerGUI extends JFrame {
     private void addTask() {
         String text = inputField.getText().trim();
         if (!text.isEmpty()) {
-            String priority = (String) priorityCombo.getSelectedItem();
-            manager.addTask(text, priority);
+            Priority priority = (Priority) priorityCombo.getSelectedItem();
+            whenReady(() -> manager.addTask(text, priority));
             inputField.setText("");
-            refreshList();
         } else {
             JOptionPane.showMessageDialog(this,
                     "Please enter a task description",
@@ -303,25 +493,22 @@ public class TaskTrackerGUI extends JFrame {
     }
 
     private void markSelectedDone() {
-        int selected = taskList.getSelectedIndex();
-        if (selected != -1) {
-            manager.markDone(selected);
-            refreshList();
+        Task selected = taskList.getSelectedValue();
+        if (selected != null) {
+            whenReady(() -> manager.markDoneById(selected.getId()));
         } else {
             showSelectionError();
         }
     }
 
     private void editSelectedTask() {
-        int selected = taskList.getSelectedIndex();
-        if (selected != -1) {
-            Task task = manager.getTasks().get(selected);
+        Task selected = taskList.getSelectedValue();
+        if (selected != null) {
             String newDesc = JOptionPane.showInputDialog(this,
                     "Edit task description:",
-                    task.getDescription());
+                    selected.getDescription());
             if (newDesc != null && !newDesc.trim().isEmpty()) {
-                manager.editTask(selected, newDesc);
-                refreshList();
+                whenReady(() -> manager.editTaskById(selected.getId(), newDesc));
             }
         } else {
             showSelectionError();
@@ -329,10 +516,10 @@ public class TaskTrackerGUI extends JFrame {
     }
 
     private void changePriority() {
-        int selected = taskList.getSelectedIndex();
-        if (selected != -1) {
-            String[] priorities = { "HIGH", "MEDIUM", "LOW" };
-            String newPriority = (String) JOptionPane.showInputDialog(this,
+        Task selected = taskList.getSelectedValue();
+        if (selected != null) {
+            Priority[] priorities = Priority.values();
+            Priority newPriority = (Priority) JOptionPane.showInputDialog(this,
                     "Select new priority:",
                     "Change Priority",
                     JOptionPane.QUESTION_MESSAGE,
@@ -341,24 +528,120 @@ public class TaskTrackerGUI extends JFrame {
                     priorities[1]);
 
             if (newPriority != null) {
-                manager.updatePriority(selected, newPriority);
-                refreshList();
+                whenReady(() -> manager.updatePriorityById(selected.getId(), newPriority));
             }
         } else {
             showSelectionError();
         }
     }
 
+    // An empty due date with no recurrence clears the task's schedule.
+    private void scheduleSelectedTask() {
+        Task selected = taskList.getSelectedValue();
+        if (selected == null) {
+            showSelectionError();
+            return;
+        }
+        TaskSchedule current = selected.getSchedule();
+        JTextField dueField = new JTextField(
+                current != null && current.getDue() != null ? current.getDue().format(DUE_INPUT) : "", 16);
+        JComboBox<String> reminderCombo = new JComboBox<>(REMINDER_OFFSETS);
+        reminderCombo.setSelectedIndex(1);
+        if (current != null && current.getDue() != null) {
+            reminderCombo.setSelectedIndex(0);
+            for (int i = 1; i < REMINDER_MINUTES.length; i++) {
+                if (current.getDue().minusMinutes(REMINDER_MINUTES[i]).equals(current.getRemindAt())) {
+                    reminderCombo.setSelectedIndex(i);
+                }
+            }
+        }
+        JComboBox<Recurrence> recurrenceCombo = new JComboBox<>(Recurrence.values());
+        recurrenceCombo.setSelectedItem(current != null ? current.getRecurrence() : Recurrence.NONE);
+
+        JPanel form = new JPanel(new GridLayout(0, 1, 4, 4));
+        form.add(new JLabel("Due (yyyy-MM-dd HH:mm, empty for none):"));
+        form.add(dueField);
+        form.add(new JLabel("Remind me:"));
+        form.add(reminderCombo);
+        form.add(new JLabel("Repeat:"));
+        form.add(recurrenceCombo);
+        int result = JOptionPane.showConfirmDialog(this, form, "Due Date / Reminder",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        Recurrence recurrence = (Recurrence) recurrenceCombo.getSelectedItem();
+        String dueText = dueField.getText().trim();
+        TaskSchedule schedule = null;
+        if (!dueText.isEmpty()) {
+            LocalDateTime due;
+            try {
+                due = LocalDateTime.parse(dueText, DUE_INPUT);
+            } catch (DateTimeParseException e) {
+                JOptionPane.showMessageDialog(this,
+                        "Please enter the due date as yyyy-MM-dd HH:mm",
+                        "Invalid Input",
+                        JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            int minutes = REMINDER_MINUTES[reminderCombo.getSelectedIndex()];
+            schedule = new TaskSchedule(due, minutes < 0 ? null : due.minusMinutes(minutes), recurrence);
+        } else if (recurrence != Recurrence.NONE) {
+            schedule = new TaskSchedule(null, null, recurrence);
+        }
+        TaskSchedule chosen = schedule;
+        whenReady(() -> manager.setSchedule(selected.getId(), chosen));
+    }
+
+    // Reminders come in bursts when many fall in the same second, so one dialog lists them.
+    // Tasks that just became overdue are only repainted and counted.
+    private void showReminders(List<Reminder> due) {
+        updateStats();
+        taskList.repaint();
+        StringBuilder text = new StringBuilder();
+        int count = 0;
+        for (Reminder r : due) {
+            if (r.getKind() != Reminder.Kind.REMINDER) {
+                continue;
+            }
+            if (count++ < MAX_REMINDERS_SHOWN) {
+                text.append(r.getTask().getDescription()).append('\n');
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        if (count > MAX_REMINDERS_SHOWN) {
+            text.append("... and ").append(count - MAX_REMINDERS_SHOWN).append(" more");
+        }
+        JDialog dialog = new JOptionPane(text.toString().trim(), JOptionPane.INFORMATION_MESSAGE)
+                .createDialog(this, count == 1 ? "Reminder" : count + " Reminders");
+        dialog.setModal(false);
+        dialog.setVisible(true);
+    }
+
+    private void showOverdue() {
+        List<Task> overdue = manager.getOverdueTasks();
+        JList<Task> list = new JList<>(overdue.toArray(new Task[0]));
+        list.setCellRenderer(new TaskCellRenderer());
+        JDialog dialog = new JDialog(this, "Overdue Tasks (" + overdue.size() + ")", false);
+        dialog.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        dialog.add(new JScrollPane(list));
+        dialog.setSize(520, 360);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
     private void deleteSelectedTask() {
-        int selected = taskList.getSelectedIndex();
-        if (selected != -1) {
+        Task selected = taskList.getSelectedValue();
+        if (selected != null) {
             int confirm = JOptionPane.showConfirmDialog(this,
                     "Delete this task?",
                     "Confirm Delete",
                     JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
-                manager.deleteTask(selected);
-                refreshList();
+                whenReady(() -> manager.deleteTaskById(selected.getId()));
             }
         } else {
             showSelectionError();
@@ -366,26 +649,326 @@ public class TaskTrackerGUI extends JFrame {
     }
 
     private void applyFilter() {
-        String filter = (String) filterCombo.getSelectedItem();
-        listModel.clear();
-        for (Task t : manager.getFilteredTasks(filter)) {
-            listModel.addElement(t.toString());
-        }
+        long start = System.nanoTime();
+        listModel.setFilter((String) filterCombo.getSelectedItem());
         updateStats();
+        filterTime.record(start);
+    }
+
+    private void applySort() {
+        long start = System.nanoTime();
+        switch (sortCombo.getSelectedIndex()) {
+            case 1:
+                listModel.setOrder(TaskOrder.ID, true);
+                break;
+            case 2:
+                listModel.setOrder(TaskOrder.PRIORITY, false);
+                break;
+            case 3:
+                listModel.setOrder(TaskOrder.CREATED, false);
+                break;
+            case 4:
+                listModel.setOrder(TaskOrder.COMPLETED, true);
+                break;
+            default:
+                listModel.setOrder(TaskOrder.ID, false);
+        }
+        sortTime.record(start);
+    }
+
+    private void runSearch() {
+        String query = searchField.getText();
+        if (query.trim().isEmpty()) {
+            listModel.setSearchResults(null);
+            return;
+        }
+        new SwingWorker<int[], Void>() {
+            protected int[] doInBackground() {
+                return manager.search(query, MAX_SEARCH_RESULTS);
+            }
+
+            protected void done() {
+                // A newer query has been typed since; its own worker will update the list.
+                if (!query.equals(searchField.getText())) {
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    listModel.setSearchResults(get());
+                    searchTime.record(start);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    private void showAnalytics() {
+        JDialog dialog = new JDialog(this, "Analytics Dashboard", false);
+        AnalyticsPanel panel = new AnalyticsPanel(manager);
+        manager.addTaskListener(panel, SwingUtilities::invokeLater);
+        dialog.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            public void windowClosed(WindowEvent e) {
+                manager.removeTaskListener(panel);
+            }
+        });
+        dialog.add(panel);
+        dialog.setSize(620, 560);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private void showArchive() {
+        JDialog dialog = new JDialog(this, "Task Archive", false);
+        dialog.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        dialog.add(new ArchivePanel(manager));
+        dialog.setSize(620, 460);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private void archiveCompleted() {
+        String days = JOptionPane.showInputDialog(this,
+                "Archive tasks completed more than this many days ago:",
+                Integer.getInteger("tasktracker.archiveDays", 30));
+        if (days == null) {
+            return;
+        }
+        int olderThanDays;
+        try {
+            olderThanDays = Integer.parseInt(days.trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Please enter a whole number of days",
+                    "Invalid Input",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            protected Integer doInBackground() {
+                return manager.archiveCompleted(olderThanDays);
+            }
+
+            protected void done() {
+                try {
+                    JOptionPane.showMessageDialog(TaskTrackerGUI.this,
+                            "Archived " + get() + " tasks",
+                            "Archive", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        whenReady(worker::execute);
     }
 
-    private void refreshList() {
-        filterCombo.setSelectedIndex(0);
-        applyFilter();
+    private void importTasks() {
+        JFileChooser chooser = createTransferChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path path = chooser.getSelectedFile().toPath();
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importing " + path.getFileName(), null, 0, 100);
+        SwingWorker<TaskTransfer.ImportResult, Void> worker = new SwingWorker<TaskTransfer.ImportResult, Void>() {
+            protected TaskTransfer.ImportResult doInBackground() throws Exception {
+                return TaskTransfer.importTasks(manager, path, this::setProgress);
+            }
+
+            protected void done() {
+                monitor.close();
+                try {
+                    TaskTransfer.ImportResult result = get();
+                    JOptionPane.showMessageDialog(TaskTrackerGUI.this,
+                            "Imported " + result.imported + " tasks"
+                                    + (result.skipped > 0 ? " (" + result.skipped + " unreadable rows skipped)" : ""),
+                            "Import", JOptionPane.INFORMATION_MESSAGE);
+                } catch (CancellationException e) {
+                    // Chunks added before cancelling stay imported.
+                } catch (Exception e) {
+                    showTransferError("Import failed", e);
+                }
+            }
+        };
+        trackProgress(worker, monitor);
+        whenReady(worker::execute);
+    }
+
+    private void exportTasks() {
+        JFileChooser chooser = createTransferChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path chosen = chooser.getSelectedFile().toPath();
+        Path path = chosen.getFileName().toString().contains(".")
+                ? chosen : chosen.resolveSibling(chosen.getFileName() + ".csv");
+        List<Task> tasks = manager.getTasksSnapshot();
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exporting " + path.getFileName(), null, 0, 100);
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            protected Integer doInBackground() throws Exception {
+                return TaskTransfer.write(tasks, path, TaskTransfer.Format.forFile(path), this::setProgress);
+            }
+
+            protected void done() {
+                monitor.close();
+                try {
+                    get();
+                } catch (CancellationException e) {
+                    // The partial file has already been removed.
+                } catch (Exception e) {
+                    showTransferError("Export failed", e);
+                }
+            }
+        };
+        trackProgress(worker, monitor);
+        worker.execute();
+    }
+
+    private JFileChooser createTransferChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV or JSON lines (*.csv, *.ndjson, *.jsonl)",
+                "csv", "ndjson", "jsonl", "json"));
+        return chooser;
+    }
+
+    private void trackProgress(SwingWorker<?, ?> worker, ProgressMonitor monitor) {
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                monitor.setProgress((Integer) e.getNewValue());
+            }
+            if (monitor.isCanceled() && !worker.isDone()) {
+                worker.cancel(true);
+            }
+        });
+    }
+
+    private void showTransferError(String title, Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        JOptionPane.showMessageDialog(this, cause.getMessage(), title, JOptionPane.ERROR_MESSAGE);
     }
 
     private void updateStats() {
-        long total = manager.getTasks().size();
+        long start = System.nanoTime();
         long completed = manager.getCompletedCount();
         long pending = manager.getPendingCount();
+        long total = completed + pending;
+        if (loading) {
+            statsLabel.setText(String.format("Loading tasks... %d%%  |  Loaded: %d%s", loadPercent, total,
+                    queuedActions.isEmpty() ? "" : "  |  Queued actions: " + queuedActions.size()));
+            statsTime.record(start);
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        long doneToday = manager.getCompletionsPerPeriod(today, today, 1)[0];
         statsLabel.setText(String.format(
-                "Total: %d  |  Completed: %d  |  Pending: %d",
-                total, completed, pending));
+                "Total: %d  |  Completed: %d  |  Pending: %d  |  Done Today: %d  |  Overdue: %d",
+                total, completed, pending, doneToday, manager.getOverdueCount()));
+        statsTime.record(start);
+    }
+
+    // Runs a change now, or once the background load is done.
+    private void whenReady(Runnable action) {
+        if (!loading) {
+            action.run();
+            return;
+        }
+        queuedActions.add(action);
+        updateStats();
+    }
+
+    // Snapshot chunks reached the list as events, but journal records are replayed without
+    // any, so the list is fetched again in full.
+    private void loadFinished() {
+        loading = false;
+        listModel.reload();
+        for (Runnable action : queuedActions) {
+            action.run();
+        }
+        queuedActions.clear();
+        updateStats();
+        updateUndoItems();
+        if (exitWhenLoaded) {
+            exit();
+        }
+        reportStartup();
+    }
+
+    // Once the window is up and the tasks are in, whichever comes last.
+    private void reportStartup() {
+        if (STARTUP_TIMING == null || firstFrameMillis < 0 || loading) {
+            return;
+        }
+        System.out.println("startup first-frame=" + firstFrameMillis + "ms interactive="
+                + Math.max(firstFrameMillis, millisSinceStart()) + "ms");
+        firstFrameMillis = -1;
+        if (STARTUP_TIMING.equals("exit")) {
+            exit();
+        }
+    }
+
+    private static long millisSinceStart() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> java.time.Duration.between(start, java.time.Instant.now()).toMillis())
+                .orElse(-1L);
+    }
+
+    // Undoing a large change can take a while, so like archiving it runs off the EDT. Undo
+    // and Redo stay disabled until it is done; the list follows through the task listener.
+    private void runHistory(BooleanSupplier step) {
+        historyBusy = true;
+        updateUndoItems();
+        SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
+            protected Boolean doInBackground() {
+                return step.getAsBoolean();
+            }
+
+            protected void done() {
+                historyBusy = false;
+                updateUndoItems();
+                try {
+                    get();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        whenReady(worker::execute);
+    }
+
+    // Refreshed from the task listener, so the labels follow every change, undos included.
+    private void updateUndoItems() {
+        String undo = manager.getUndoLabel();
+        String redo = manager.getRedoLabel();
+        undoItem.setText(undo == null ? "Undo" : "Undo " + undo);
+        undoItem.setEnabled(undo != null && !historyBusy);
+        redoItem.setText(redo == null ? "Redo" : "Redo " + redo);
+        redoItem.setEnabled(redo != null && !historyBusy);
+    }
+
+    private void saveDiagnostics() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("tasktracker-metrics.txt"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            manager.getMetrics().dump(chooser.getSelectedFile().toPath());
+        } catch (java.io.IOException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Save Diagnostics Failed",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void exit() {
+        if (loading) {
+            // Queued actions still have to run; loadFinished() comes back here.
+            exitWhenLoaded = true;
+            setVisible(false);
+            return;
+        }
+        edtMonitor.stop();
+        manager.close();
+        System.exit(0);
     }
 
     private void showSelectionError() {
@@ -402,8 +985,35 @@ public class TaskTrackerGUI extends JFrame {
             e.printStackTrace();
         }
 
+        // --connect host:port (or -Dtasktracker.server) shows a TaskServer's tasks instead
+        // of the local files.
+        String server = System.getProperty("tasktracker.server");
+        if (args.length == 2 && args[0].equals("--connect")) {
+            server = args[1];
+        }
+        String address = server;
         SwingUtilities.invokeLater(() -> {
-            TaskTrackerGUI gui = new TaskTrackerGUI();
+            TaskManager manager;
+            if (address == null) {
+                // The window comes up empty and fills in as the tasks load, unless
+                // tasktracker.progressive is false.
+                boolean progressive = Boolean.parseBoolean(System.getProperty("tasktracker.progressive", "true"));
+                manager = new TaskManager(true, Boolean.getBoolean("tasktracker.binary"),
+                        Integer.getInteger("tasktracker.shards", 1), progressive);
+            } else {
+                int colon = address.lastIndexOf(':');
+                String host = colon < 0 ? address : address.substring(0, colon);
+                int port = colon < 0 ? TaskServer.DEFAULT_PORT : Integer.parseInt(address.substring(colon + 1));
+                try {
+                    manager = new RemoteTaskManager(host, port);
+                } catch (java.io.IOException e) {
+                    JOptionPane.showMessageDialog(null, "Could not connect to " + address + ": " + e.getMessage(),
+                            "Connection Failed", JOptionPane.ERROR_MESSAGE);
+                    System.exit(1);
+                    return;
+                }
+            }
+            TaskTrackerGUI gui = new TaskTrackerGUI(manager);
             gui.setVisible(true);
         });
     }
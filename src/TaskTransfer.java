@@ -0,0 +1,267 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Streaming import and export of task sets as CSV or line-delimited JSON. Import reads
+// the file in chunks cut at record boundaries and parses several chunks at once on the
+// common pool, handing parsed tasks to the sink in file order. Only a few chunks are in
+// flight at a time, so memory stays bounded whatever the file size. A record longer
+// than MAX_RECORD_CHARS, such as a CSV row whose unbalanced quote would swallow the rest
+// of the file, is skipped up to its first line break and counted like a row that fails
+// to parse.
+public class TaskTransfer {
+    private static final int CHUNK_CHARS = 1 << 20;
+    private static final int MAX_RECORD_CHARS = 1 << 20;
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    public enum Format {
+        CSV, NDJSON;
+
+        TaskCodec codec() {
+            return this == CSV ? new CsvTaskCodec() : new JsonLinesTaskCodec();
+        }
+
+        // By extension: .csv is CSV, anything else (.ndjson, .jsonl, .json) is NDJSON.
+        public static Format forFile(Path path) {
+            return path.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    public static class ImportResult {
+        public final long imported;
+        public final long skipped;
+
+        ImportResult(long imported, long skipped) {
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+    }
+
+    private static class Chunk {
+        final CompletableFuture<List<Task>> tasks;
+        final int[] skipped = new int[1];
+        final long bytesRead;
+
+        Chunk(TaskCodec codec, String text, long bytesRead) {
+            this.tasks = CompletableFuture.supplyAsync(() -> codec.parse(text, skipped), ForkJoinPool.commonPool());
+            this.bytesRead = bytesRead;
+        }
+    }
+
+    public static int exportTasks(TaskManager manager, Path path, IntConsumer progress) throws IOException {
+        return write(manager.getTasksSnapshot(), path, Format.forFile(path), progress);
+    }
+
+    public static ImportResult importTasks(TaskManager manager, Path path, IntConsumer progress) throws IOException {
+        return read(path, Format.forFile(path), manager::addAll, progress);
+    }
+
+    // Writes to a temporary file and renames it over path, so a failed export never
+    // leaves a truncated file behind. Progress is reported in percent.
+    public static int write(List<Task> tasks, Path path, Format format, IntConsumer progress) throws IOException {
+        TaskCodec codec = format.codec();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        int lastPercent = -1;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmp),
+                StandardCharsets.UTF_8), WRITE_BUFFER)) {
+            codec.writeHeader(out);
+            for (int i = 0; i < tasks.size(); i++) {
+                codec.write(tasks.get(i), out);
+                int percent = (int) ((i + 1) * 100L / tasks.size());
+                if (percent != lastPercent) {
+                    checkCancelled();
+                    progress.accept(percent);
+                    lastPercent = percent;
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        progress.accept(100);
+        return tasks.size();
+    }
+
+    // Feeds parsed tasks to sink one chunk at a time, in file order. Tasks come back
+    // detached, with id 0. Records that cannot be parsed are skipped and counted.
+    public static ImportResult read(Path path, Format format, Consumer<List<Task>> sink, IntConsumer progress)
+            throws IOException {
+        TaskCodec codec = format.codec();
+        long size = Math.max(1, Files.size(path));
+        int maxInFlight = ForkJoinPool.getCommonPoolParallelism() + 2;
+        ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+        long[] counts = new long[2];
+        boolean headerPending = codec.hasHeader();
+        boolean discarding = false;
+
+        try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(path));
+                Reader in = new InputStreamReader(counter, StandardCharsets.UTF_8)) {
+            char[] buf = new char[CHUNK_CHARS];
+            StringBuilder pending = new StringBuilder();
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                checkCancelled();
+                pending.append(buf, 0, n);
+                if (discarding) {
+                    discarding = skipLine(pending);
+                    if (discarding) {
+                        continue;
+                    }
+                }
+                if (headerPending) {
+                    int end = recordEnd(pending, codec.quotedNewlines(), true);
+                    if (end < 0 && pending.length() > MAX_RECORD_CHARS) {
+                        throw new IOException("Import header is longer than " + MAX_RECORD_CHARS + " characters");
+                    }
+                    if (end < 0) {
+                        continue;
+                    }
+                    codec.readHeader(pending.substring(0, end + 1));
+                    pending.delete(0, end + 1);
+                    headerPending = false;
+                }
+                int end = recordEnd(pending, codec.quotedNewlines(), false);
+                while (end < 0 && pending.length() > MAX_RECORD_CHARS) {
+                    counts[1]++;
+                    discarding = skipLine(pending);
+                    end = discarding ? -1 : recordEnd(pending, codec.quotedNewlines(), false);
+                }
+                if (end < 0) {
+                    continue;
+                }
+                inFlight.add(new Chunk(codec, pending.substring(0, end + 1), counter.count));
+                pending.delete(0, end + 1);
+                while (inFlight.size() >= maxInFlight) {
+                    apply(inFlight.poll(), sink, counts, size, progress);
+                }
+            }
+            if (headerPending && pending.length() > 0) {
+                codec.readHeader(pending.toString());
+            } else if (pending.length() > 0) {
+                inFlight.add(new Chunk(codec, pending.toString(), counter.count));
+            }
+            while (!inFlight.isEmpty()) {
+                apply(inFlight.poll(), sink, counts, size, progress);
+            }
+        } finally {
+            for (Chunk chunk : inFlight) {
+                chunk.tasks.cancel(false);
+            }
+        }
+        progress.accept(100);
+        return new ImportResult(counts[0], counts[1]);
+    }
+
+    // Normalises an imported record into a detached task. Line breaks in descriptions
+    // become spaces because the snapshot and journal formats are line based.
+    static Task importedTask(String description, boolean completed, String priority,
+            LocalDateTime created, LocalDateTime completedDate, LocalDateTime due, LocalDateTime remindAt,
+            String recurrence) {
+        String desc = TaskManager.singleLine(description);
+        LocalDateTime createdDate = created != null ? created : LocalDateTime.now();
+        LocalDateTime doneDate = !completed ? null : completedDate != null ? completedDate : LocalDateTime.now();
+        Task t = new Task(0, desc, completed, Priority.parse(priority), createdDate, doneDate);
+        Recurrence repeat = Recurrence.parse(recurrence);
+        if (due != null || remindAt != null || repeat != Recurrence.NONE) {
+            t.setSchedule(new TaskSchedule(due, remindAt, repeat));
+        }
+        return t;
+    }
+
+    private static void apply(Chunk chunk, Consumer<List<Task>> sink, long[] counts, long size,
+            IntConsumer progress) throws IOException {
+        List<Task> tasks;
+        try {
+            tasks = chunk.tasks.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import cancelled");
+        } catch (ExecutionException e) {
+            throw new IOException("Error parsing import: " + e.getCause().getMessage(), e.getCause());
+        }
+        if (!tasks.isEmpty()) {
+            sink.accept(tasks);
+        }
+        counts[0] += tasks.size();
+        counts[1] += chunk.skipped[0];
+        progress.accept((int) Math.min(99, chunk.bytesRead * 100 / size));
+    }
+
+    // Index of the last (or first) line break that ends a record, or -1. With quoted
+    // newlines the scan tracks quote parity from the start, which is always a record
+    // boundary; a doubled quote toggles twice and so changes nothing.
+    private static int recordEnd(StringBuilder text, boolean quotedNewlines, boolean first) {
+        if (!quotedNewlines) {
+            return first ? text.indexOf("\n") : text.lastIndexOf("\n");
+        }
+        boolean quoted = false;
+        int last = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\n' && !quoted) {
+                if (first) {
+                    return i;
+                }
+                last = i;
+            }
+        }
+        return last;
+    }
+
+    // Drops the text up to and including the first line break and returns true when
+    // there is none yet, so the rest of the line has to be dropped as it arrives.
+    private static boolean skipLine(StringBuilder text) {
+        int end = text.indexOf("\n");
+        if (end < 0) {
+            text.setLength(0);
+            return true;
+        }
+        text.delete(0, end + 1);
+        return false;
+    }
+
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Transfer cancelled");
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// The original tasks.txt layout: one comma-separated row per task, optionally preceded by
+// a "#seq=" header line. Rows are written and parsed in parallel chunks (ParallelSnapshot).
+// A task with a schedule carries it after its id, as "id;due;remind;RECURRENCE"; plain
+// ids stay as they were, so older files still read.
+public class TextTaskFormat implements TaskFormat {
+    private static final String SEQ_HEADER = "#seq=";
+
+    @Override
+    public long read(Path path, Consumer<Task> sink) throws IOException {
+        return read(path, sink, percent -> { });
+    }
+
+    @Override
+    public long read(Path path, Consumer<Task> sink, IntConsumer progress) throws IOException {
+        AtomicLong seq = new AtomicLong();
+        ParallelSnapshot.readLines(path, line -> {
+            if (line.startsWith(SEQ_HEADER)) {
+                seq.set(Long.parseLong(line.substring(SEQ_HEADER.length())));
+                return null;
+            }
+            try {
+                return parseRow(line);
+            } catch (RuntimeException e) {
+                System.out.println("Skipping bad task row: " + e.getMessage());
+                return null;
+            }
+        }, sink, progress);
+        return seq.get();
+    }
+
+    @Override
+    public void write(Path path, List<Task> tasks, long seq) throws IOException {
+        byte[] header = (SEQ_HEADER + seq + "\n").getBytes(StandardCharsets.UTF_8);
+        ParallelSnapshot.write(path, header, tasks, (chunk, out) -> {
+            for (Task t : chunk) {
+                out.write(toRow(t).getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+        });
+    }
+
+    public static String toRow(Task t) {
+        TaskSchedule schedule = t.getSchedule();
+        return t.getId() + (schedule != null ? ";" + schedule.encode() : "") + "," +
+                t.getDescription() + "," +
+                t.isCompleted() + "," +
+                t.getPriority().name() + "," +
+                t.getCreatedDate() + "," +
+                (t.getCompletedDate() != null ? t.getCompletedDate() : "");
+    }
+
+    // Descriptions may contain commas, so the fixed fields are taken from both ends.
+    public static Task parseRow(String line) {
+        int first = line.indexOf(',');
+        int[] tail = new int[4];
+        int end = line.length();
+        for (int i = 3; i >= 0; i--) {
+            end = line.lastIndexOf(',', end - 1);
+            if (end <= first) {
+                return null;
+            }
+            tail[i] = end;
+        }
+
+        String completedField = line.substring(tail[3] + 1);
+        LocalDateTime createdDate = LocalDateTime.parse(line.substring(tail[2] + 1, tail[3]));
+        LocalDateTime completedDate = !completedField.isEmpty()
+                ? LocalDateTime.parse(completedField)
+                : null;
+
+        String idField = line.substring(0, first);
+        int semicolon = idField.indexOf(';');
+        Task t = new Task(Integer.parseInt(semicolon < 0 ? idField : idField.substring(0, semicolon)),
+                line.substring(first + 1, tail[0]), Boolean.parseBoolean(line.substring(tail[0] + 1, tail[1])),
+                Priority.parse(line.substring(tail[1] + 1, tail[2])), createdDate, completedDate);
+        if (semicolon >= 0) {
+            t.setSchedule(TaskSchedule.decode(idField.substring(semicolon + 1)));
+        }
+        return t;
+    }
+}
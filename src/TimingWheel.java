@@ -0,0 +1,162 @@
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: timers are hashed into one of 64 slots on one of 11 levels,
+// each level's slots 64 times wider than the level below, so deadlines any distance away
+// fit without an overflow list. A timer goes on the level of the highest 6-bit group in
+// which its deadline differs from the current tick; when the wheel reaches the start of
+// that slot, the slot's timers cascade down to finer levels until they reach level 0 and
+// fire. Scheduling and cancelling are O(1) (slots are doubly linked lists) and advancing
+// one tick touches only the slots that start at it; an empty wheel jumps straight ahead.
+//
+// Ticks are whatever unit the owner counts in. Not thread-safe.
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+    // Timers already due when scheduled, fired by the next advance.
+    private static final int READY = LEVELS * SLOTS;
+
+    public static class Timer<T> {
+        private final long deadline;
+        private final T payload;
+        private Timer<T> prev;
+        private Timer<T> next;
+        // Index into slots, or -1 once fired or cancelled.
+        private int slot = -1;
+
+        private Timer(long deadline, T payload) {
+            this.deadline = deadline;
+            this.payload = payload;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public boolean isPending() {
+            return slot >= 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final Timer<T>[] slots = (Timer<T>[]) new Timer<?>[READY + 1];
+    private long tick;
+    private int size;
+
+    public TimingWheel(long startTick) {
+        tick = startTick;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Timer<T> schedule(long deadline, T payload) {
+        Timer<T> timer = new Timer<>(deadline, payload);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    // False if the timer already fired or was cancelled.
+    public boolean cancel(Timer<T> timer) {
+        if (timer.slot < 0) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    // Moves the wheel to the given tick and hands every timer that came due on the way to
+    // expired, each exactly once. A tick at or before the current one only fires the
+    // timers scheduled in the past since the last advance.
+    public void advanceTo(long target, Consumer<Timer<T>> expired) {
+        fireSlot(READY, expired);
+        while (tick < target) {
+            if (size == 0) {
+                // Nothing left to cascade or fire, e.g. after the machine slept for a week.
+                tick = target;
+                break;
+            }
+            tick++;
+            int top = Math.min(LEVELS - 1, Long.numberOfTrailingZeros(tick) / SLOT_BITS);
+            for (int level = top; level > 0; level--) {
+                Timer<T> t = detach(level * SLOTS + slotAt(tick, level));
+                while (t != null) {
+                    Timer<T> next = t.next;
+                    place(t);
+                    t = next;
+                }
+            }
+            fireSlot(slotAt(tick, 0), expired);
+            fireSlot(READY, expired);
+        }
+    }
+
+    private void fireSlot(int slot, Consumer<Timer<T>> expired) {
+        Timer<T> t = detach(slot);
+        while (t != null) {
+            Timer<T> next = t.next;
+            t.prev = null;
+            t.next = null;
+            size--;
+            expired.accept(t);
+            t = next;
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        int slot;
+        if (timer.deadline <= tick) {
+            slot = READY;
+        } else {
+            int level = (63 - Long.numberOfLeadingZeros(timer.deadline ^ tick)) / SLOT_BITS;
+            slot = level * SLOTS + slotAt(timer.deadline, level);
+        }
+        Timer<T> head = slots[slot];
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        slots[slot] = timer;
+        timer.slot = slot;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.slot = -1;
+    }
+
+    // Empties a slot and returns its old list, whose timers are marked unscheduled.
+    private Timer<T> detach(int slot) {
+        Timer<T> head = slots[slot];
+        slots[slot] = null;
+        for (Timer<T> t = head; t != null; t = t.next) {
+            t.slot = -1;
+        }
+        return head;
+    }
+
+    private static int slotAt(long tick, int level) {
+        return (int) (tick >>> (level * SLOT_BITS)) & (SLOTS - 1);
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A lazy load of tasks.dat must leave every description in the mapped file, the search
+// index included: it is built in the background and searches wait for it.
+public class LazyLoadTest {
+    private static final int TASKS = 20000;
+
+    @TempDir
+    Path dir;
+
+    private String previousDir;
+    private String previousLazy;
+
+    @BeforeEach
+    void useTempDir() throws Exception {
+        previousDir = System.getProperty("tasktracker.dir");
+        previousLazy = System.getProperty("tasktracker.lazy");
+        System.setProperty("tasktracker.dir", dir.toString());
+        System.setProperty("tasktracker.lazy", "true");
+        List<Task> tasks = new ArrayList<>(TASKS);
+        LocalDateTime created = LocalDateTime.of(2026, 1, 1, 9, 0);
+        for (int id = 1; id <= TASKS; id++) {
+            tasks.add(new Task(id, "task " + id + (id % 7 == 0 ? " alpha" : " beta"), false, Priority.MEDIUM,
+                    created, null));
+        }
+        new BinaryTaskFormat().write(dir.resolve("tasks.dat"), tasks, 0);
+    }
+
+    @AfterEach
+    void restoreProperties() {
+        restore("tasktracker.dir", previousDir);
+        restore("tasktracker.lazy", previousLazy);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void loadLeavesDescriptionsEncoded(boolean inBackground) {
+        TaskManager manager = new TaskManager(false, true, 2, inBackground);
+        try {
+            if (inBackground) {
+                manager.loadInBackground(percent -> { });
+            }
+            int[] expected = IntStream.rangeClosed(1, TASKS).filter(id -> id % 7 == 0).toArray();
+            assertArrayEquals(expected, manager.search("alpha", TASKS));
+            List<Task> loaded = manager.getTasksSnapshot();
+            assertEquals(TASKS, loaded.size());
+            for (Task t : loaded) {
+                assertFalse(t.isDescriptionDecoded(), "description of task " + t.getId() + " was decoded");
+            }
+
+            assertTrue(manager.editTaskById(14, "task 14 gamma"));
+            assertArrayEquals(new int[] { 14 }, manager.search("gamma", TASKS));
+            assertEquals(expected.length - 1, manager.search("alpha", TASKS).length);
+        } finally {
+            manager.close();
+        }
+    }
+
+    private static void restore(String key, String value) {
+        if (value == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, value);
+        }
+    }
+}
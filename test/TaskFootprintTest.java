@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Heap retained per task by a loaded TaskManager, every index included, with tasks as
+// plain objects and as views over TaskStore columns. It is measured as the change in
+// used heap after forced collections, so the budgets leave some slack.
+public class TaskFootprintTest {
+    private static final int TASKS = 200_000;
+    // Bytes per task, half of them completed; about 340 as objects and 280 as columns on
+    // JDK 17 with compressed references.
+    private static final long COLUMNAR_BUDGET = 300;
+    private static final long MIN_SAVING = 40;
+
+    @TempDir
+    Path dir;
+
+    private String previousDir;
+    private String previousColumnar;
+
+    @BeforeEach
+    void writeTasks() throws Exception {
+        previousDir = System.getProperty("tasktracker.dir");
+        previousColumnar = System.getProperty("tasktracker.columnar");
+        System.setProperty("tasktracker.dir", dir.toString());
+        List<Task> tasks = new ArrayList<>(TASKS);
+        LocalDateTime created = LocalDateTime.of(2026, 1, 1, 9, 0);
+        for (int id = 1; id <= TASKS; id++) {
+            LocalDateTime when = created.plusMinutes(id);
+            tasks.add(new Task(id, "Write the weekly report", id % 2 == 0, Priority.ofCode(id % Priority.count()),
+                    when, id % 2 == 0 ? when.plusHours(1) : null));
+        }
+        new TextTaskFormat().write(dir.resolve("tasks.txt"), tasks, 0);
+    }
+
+    @AfterEach
+    void restoreProperties() {
+        restore("tasktracker.dir", previousDir);
+        restore("tasktracker.columnar", previousColumnar);
+    }
+
+    @Test
+    void columnarTasksTakeLessHeap() {
+        long objects = bytesPerTask(false);
+        long columnar = bytesPerTask(true);
+        assertTrue(columnar <= COLUMNAR_BUDGET, "columnar tasks take " + columnar + " bytes each");
+        assertTrue(objects - columnar >= MIN_SAVING,
+                "columnar tasks take " + columnar + " bytes each, plain ones " + objects);
+    }
+
+    private long bytesPerTask(boolean columnar) {
+        System.setProperty("tasktracker.columnar", String.valueOf(columnar));
+        long base = usedHeap();
+        TaskManager manager = new TaskManager(false, false, 1);
+        try {
+            long used = usedHeap() - base;
+            assertEquals(TASKS / 2, manager.getCompletedCount());
+            return used / TASKS;
+        } finally {
+            manager.close();
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void restore(String key, String value) {
+        if (value == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, value);
+        }
+    }
+}
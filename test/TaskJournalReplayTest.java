@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Descriptions with line breaks, added and edited through the public API, must come back
+// whole after a restart that replays them from the journal.
+public class TaskJournalReplayTest {
+    @TempDir
+    Path dir;
+
+    private String previousDir;
+
+    @BeforeEach
+    void useTempDir() {
+        previousDir = System.getProperty("tasktracker.dir");
+        System.setProperty("tasktracker.dir", dir.toString());
+    }
+
+    @AfterEach
+    void restoreDir() {
+        if (previousDir == null) {
+            System.clearProperty("tasktracker.dir");
+        } else {
+            System.setProperty("tasktracker.dir", previousDir);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void lineBreaksInDescriptionsSurviveReplay(boolean binary) {
+        TaskManager manager = new TaskManager(true, binary, 1);
+        Task added = manager.addTask("first line\nsecond line", Priority.HIGH);
+        Task edited = manager.addTask("plain", Priority.LOW);
+        assertTrue(manager.editTaskById(edited.getId(), "edited\r\nover two lines"));
+        Task imported = manager.addAll(Arrays.asList(
+                new Task(0, "imported\rwith a CR", false, Priority.MEDIUM, LocalDateTime.now(), null))).get(0);
+        Task after = manager.addTask("after", Priority.MEDIUM);
+        assertEquals("first line second line", added.getDescription());
+        assertEquals("edited over two lines", manager.getTaskById(edited.getId()).getDescription());
+        List<String> before = describe(manager.getTasksSnapshot());
+        manager.close();
+
+        TaskManager reloaded = new TaskManager(true, binary, 1);
+        try {
+            assertEquals(before, describe(reloaded.getTasksSnapshot()));
+            assertEquals("imported with a CR", reloaded.getTaskById(imported.getId()).getDescription());
+            assertEquals("after", reloaded.getTaskById(after.getId()).getDescription());
+            reloaded.verifyCounters();
+        } finally {
+            reloaded.close();
+        }
+    }
+
+    private static List<String> describe(List<Task> tasks) {
+        List<String> lines = new ArrayList<>(tasks.size());
+        for (Task t : tasks) {
+            lines.add(t.getId() + "|" + t.getDescription() + "|" + t.getPriority());
+        }
+        return lines;
+    }
+}
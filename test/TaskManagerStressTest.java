@@ -0,0 +1,208 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Many writers adding, completing, reprioritizing and deleting at once over a sharded
+// manager while a reader takes snapshots. Each writer only touches the tasks it added,
+// so the final state is known exactly; it is checked in memory, against the live
+// counters, and again after reloading from the snapshot and journal. Enough records are
+// written to compact the journal at least once while the writers run. It runs with tasks
+// as plain objects and as views over TaskStore columns.
+public class TaskManagerStressTest {
+    private static final int WRITERS = 8;
+    private static final int OPERATIONS = 5000;
+
+    @TempDir
+    Path dir;
+
+    private String previousDir;
+    private String previousColumnar;
+
+    @BeforeEach
+    void useTempDir() {
+        previousDir = System.getProperty("tasktracker.dir");
+        previousColumnar = System.getProperty("tasktracker.columnar");
+        System.setProperty("tasktracker.dir", dir.toString());
+    }
+
+    @AfterEach
+    void restoreDir() {
+        restore("tasktracker.dir", previousDir);
+        restore("tasktracker.columnar", previousColumnar);
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "false, false", "true, false", "false, true", "true, true" })
+    void concurrentWritersKeepTasksAndCountersConsistent(boolean binary, boolean columnar) throws Exception {
+        System.setProperty("tasktracker.columnar", String.valueOf(columnar));
+        int shards = Integer.getInteger("tasktracker.shards", 4);
+        assertTrue(shards > 1, "run with -Dtasktracker.shards greater than 1");
+        TaskManager manager = new TaskManager(true, binary, shards);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong snapshots = new AtomicLong();
+        Future<?> reader = pool.submit(() -> {
+            while (writing.get()) {
+                List<Task> snapshot = manager.getTasksSnapshot();
+                for (int i = 1; i < snapshot.size(); i++) {
+                    assertTrue(snapshot.get(i - 1).getId() < snapshot.get(i).getId(), "snapshot out of id order");
+                }
+                manager.verifyCounters();
+                snapshots.incrementAndGet();
+            }
+            return null;
+        });
+        List<Future<Map<Integer, Expected>>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(pool.submit(() -> write(manager, writer)));
+        }
+
+        Map<Integer, Expected> expected = new TreeMap<>();
+        try {
+            for (Future<Map<Integer, Expected>> writer : writers) {
+                expected.putAll(writer.get(2, TimeUnit.MINUTES));
+            }
+        } finally {
+            writing.set(false);
+            reader.get(1, TimeUnit.MINUTES);
+            pool.shutdown();
+        }
+        assertTrue(snapshots.get() > 0);
+
+        List<Task> tasks = manager.getTasksSnapshot();
+        assertEquals(expected.size(), tasks.size());
+        for (Task t : tasks) {
+            Expected e = expected.get(t.getId());
+            assertNotNull(e, "unexpected task " + t.getId());
+            assertEquals(e.description, t.getDescription());
+            assertEquals(e.completed, t.isCompleted(), "completion of task " + t.getId());
+            assertEquals(e.priority, t.getPriority(), "priority of task " + t.getId());
+        }
+        long completed = expected.values().stream().filter(e -> e.completed).count();
+        assertEquals(completed, manager.getCompletedCount());
+        assertEquals(expected.size() - completed, manager.getPendingCount());
+        for (Priority p : Priority.values()) {
+            for (boolean done : new boolean[] { false, true }) {
+                long count = expected.values().stream().filter(e -> e.completed == done && e.priority == p).count();
+                assertEquals(count, manager.getCount(done, p), (done ? "completed " : "pending ") + p);
+            }
+        }
+        manager.verifyCounters();
+        List<String> before = describe(tasks);
+        manager.close();
+
+        TaskManager reloaded = new TaskManager(true, binary, shards);
+        try {
+            assertEquals(before, describe(reloaded.getTasksSnapshot()));
+            reloaded.verifyCounters();
+        } finally {
+            reloaded.close();
+        }
+    }
+
+    // One writer's run: adds tasks and changes random ones of its own, one at a time and
+    // in bulk, returning what each surviving task should look like.
+    private static Map<Integer, Expected> write(TaskManager manager, int writer) {
+        SplittableRandom random = new SplittableRandom(writer);
+        Map<Integer, Expected> mine = new HashMap<>();
+        List<Integer> live = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int op = random.nextInt(100);
+            if (op < 35 || live.isEmpty()) {
+                Priority p = randomPriority(random);
+                Task t = manager.addTask("writer " + writer + " task " + i, p);
+                mine.put(t.getId(), new Expected(t.getDescription(), p));
+                live.add(t.getId());
+            } else if (op < 55) {
+                int id = live.get(random.nextInt(live.size()));
+                assertTrue(manager.markDoneById(id));
+                mine.get(id).completed = true;
+            } else if (op < 75) {
+                int id = live.get(random.nextInt(live.size()));
+                Priority p = randomPriority(random);
+                assertTrue(manager.updatePriorityById(id, p));
+                mine.get(id).priority = p;
+            } else if (op < 85) {
+                int id = live.remove(random.nextInt(live.size()));
+                assertTrue(manager.deleteTaskById(id));
+                mine.remove(id);
+            } else if (op < 90) {
+                List<Integer> ids = pick(live, random);
+                assertEquals(ids.size(), manager.markDoneAll(ids));
+                for (int id : ids) {
+                    mine.get(id).completed = true;
+                }
+            } else if (op < 95) {
+                List<Integer> ids = pick(live, random);
+                Priority p = randomPriority(random);
+                assertEquals(ids.size(), manager.updatePriorityAll(ids, p));
+                for (int id : ids) {
+                    mine.get(id).priority = p;
+                }
+            } else {
+                List<Integer> ids = pick(live, random);
+                assertEquals(ids.size(), manager.deleteAll(ids));
+                live.removeAll(ids);
+                mine.keySet().removeAll(ids);
+            }
+        }
+        return mine;
+    }
+
+    private static List<Integer> pick(List<Integer> live, SplittableRandom random) {
+        List<Integer> shuffled = new ArrayList<>(live);
+        Collections.shuffle(shuffled, new Random(random.nextLong()));
+        return new ArrayList<>(shuffled.subList(0, Math.min(shuffled.size(), 1 + random.nextInt(8))));
+    }
+
+    private static Priority randomPriority(SplittableRandom random) {
+        return Priority.values()[random.nextInt(Priority.count())];
+    }
+
+    private static List<String> describe(List<Task> tasks) {
+        List<String> lines = new ArrayList<>(tasks.size());
+        for (Task t : tasks) {
+            lines.add(t.getId() + "|" + t.getDescription() + "|" + t.isCompleted() + "|" + t.getPriority()
+                    + "|" + millis(t.getCreatedDate()) + "|" + millis(t.getCompletedDate()));
+        }
+        return lines;
+    }
+
+    // tasks.dat keeps dates to the millisecond.
+    private static LocalDateTime millis(LocalDateTime date) {
+        return date == null ? null : date.truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static void restore(String key, String value) {
+        if (value == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, value);
+        }
+    }
+
+    private static class Expected {
+        final String description;
+        boolean completed;
+        Priority priority;
+
+        Expected(String description, Priority priority) {
+            this.description = description;
+            this.priority = priority;
+        }
+    }
+}